@@ -0,0 +1,84 @@
+package ru.aston.mailservice.kafka;
+
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import ru.aston.mailservice.service.MailDispatcher;
+import ru.aston.mailservice.service.MailServiceImpl;
+import ru.aston.mailservice.template.MailTemplates;
+import ru.aston.common.kafka.Command;
+import ru.aston.common.kafka.UserEvent;
+import ru.aston.common.kafka.UserEventDeserializer;
+import ru.aston.common.kafka.UserEventSerializer;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+//Разбор записи USERS и обработка пакета из одной записи в Consumer.consume без SMTP: отправка заменена
+//счётчиком, окно дедупликации нулевое, чтобы одна и та же запись не считалась повтором.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 3, jvmArgsAppend = "-Dlogback.configurationFile=logback-bench.xml")
+public class CommandDispatchBenchmark {
+    @Param({"CREATE", "UPDATE", "DELETE"})
+    public Command command;
+
+    private final UserEventDeserializer deserializer = new UserEventDeserializer();
+    private final LongAdder sent = new LongAdder();
+    private MailDispatcher mailDispatcher;
+    private Consumer consumer;
+    private byte[] data;
+
+    @Setup
+    public void setUp() {
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl() {
+            @Override
+            public void send(SimpleMailMessage simpleMessage) {
+                sent.increment();
+            }
+        };
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        mailDispatcher = new MailDispatcher(16, meterRegistry);
+        MailServiceImpl mailService = new MailServiceImpl(mailSender, "noreply@test.tt",
+                new MailTemplates(List.of(Locale.of("ru")), Locale.of("ru"), ZoneId.of("Europe/Moscow")));
+        consumer = new Consumer(mailService, mailDispatcher, ObservationRegistry.NOOP, null, null,
+                new MailDeduplicator(Duration.ZERO, 1, meterRegistry), null, false);
+        data = new UserEventSerializer().serialize("USERS",
+                new UserEvent(command, 1, null, "user1@test.tt", "User1", 1L, Instant.now()));
+    }
+
+    @TearDown
+    public void tearDown() {
+        mailDispatcher.destroy();
+    }
+
+    @Benchmark
+    public void consume() {
+        UserEvent event = deserializer.deserialize("USERS", data);
+        consumer.consume(List.of(new ConsumerRecord<>("USERS", 0, 0L, String.valueOf(event.id()), event)), () -> {
+        });
+    }
+}
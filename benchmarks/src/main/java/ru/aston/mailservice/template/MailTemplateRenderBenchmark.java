@@ -0,0 +1,48 @@
+package ru.aston.mailservice.template;
+
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+
+//Отрисовка письма по разобранному при старте шаблону: подстановка полей адресата без разбора текста.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 3, jvmArgsAppend = "-Dlogback.configurationFile=logback-bench.xml")
+public class MailTemplateRenderBenchmark {
+    @Param({"ru", "en"})
+    public String locale;
+
+    private MailTemplates mailTemplates;
+    private Recipient recipient;
+
+    @Setup
+    public void setUp() {
+        mailTemplates = new MailTemplates(List.of(Locale.of("ru"), Locale.of("en")), Locale.of("ru"),
+                ZoneId.of("Europe/Moscow"));
+        recipient = new Recipient("user1@test.tt", "User1", 1, Instant.now(), Locale.of(locale));
+    }
+
+    @Benchmark
+    public RenderedMail render() {
+        return mailTemplates.render(MailTemplateType.USER_CREATED, recipient);
+    }
+}
@@ -0,0 +1,89 @@
+package ru.aston.userservice.controller;
+
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.request.ServletWebRequest;
+import ru.aston.userservice.model.UserDTO;
+import ru.aston.userservice.service.UserService;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+//Ответы read/id и findAll UserController с HATEOAS-ссылками и ETag; UserService заменён заглушкой,
+//поэтому в замер входит только работа контроллера.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 3, jvmArgsAppend = "-Dlogback.configurationFile=logback-bench.xml")
+public class UserLinksBenchmark {
+    private UserController controller;
+    private MockHttpServletRequest request;
+
+    @Setup
+    public void setUp() {
+        request = new MockHttpServletRequest("GET", "/api/users/findAll");
+        request.setServerName("localhost");
+        request.setServerPort(8181);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+
+        UserDTO user = user(1);
+        List<UserDTO> page = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            page.add(user(i));
+        }
+        UserService userService = (UserService) Proxy.newProxyInstance(UserService.class.getClassLoader(),
+                new Class<?>[]{UserService.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "getUserById" -> Optional.of(user);
+                    case "findUsersAfter" -> page;
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+        controller = new UserController(userService, null, new ObjectMapper());
+    }
+
+    @TearDown
+    public void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Benchmark
+    public ResponseEntity<EntityModel<UserDTO>> getUserById() {
+        return controller.getUserById(1, new ServletWebRequest(request));
+    }
+
+    @Benchmark
+    public ResponseEntity<CollectionModel<EntityModel<UserDTO>>> findAllPage50() {
+        return controller.findAllUsers(true, 50, new ServletWebRequest(request));
+    }
+
+    @Benchmark
+    public ResponseEntity<CollectionModel<EntityModel<UserDTO>>> findAllPage50WithoutLinks() {
+        return controller.findAllUsers(false, 50, new ServletWebRequest(request));
+    }
+
+    private static UserDTO user(int id) {
+        return new UserDTO(id, "User" + id, "user" + id + "@test.tt", 30, LocalDateTime.of(2025, 1, 1, 12, 0));
+    }
+}
@@ -0,0 +1,112 @@
+package ru.aston.userservice.dao;
+
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+//Поиск по email при росте таблицы: уникальный индекс users_email_lower_key против последовательного сканирования.
+//База: -Dbench.jdbc.url=jdbc:postgresql://localhost:5432/postgres -Dbench.jdbc.user=... -Dbench.jdbc.password=...,
+//без url поднимается postgres:13 в Testcontainers.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-bench.xml")
+public class UserEmailLookupBenchmark {
+    private static final String INDEXED_TABLE = "bench_users_indexed";
+    private static final String PLAIN_TABLE = "bench_users_plain";
+
+    @Param({"1000", "100000", "1000000"})
+    private int rows;
+
+    private PostgreSQLContainer<?> container;
+    private Connection connection;
+    private PreparedStatement indexedLookup;
+    private PreparedStatement plainLookup;
+
+    @Setup
+    public void setUp() throws SQLException {
+        String url = System.getProperty("bench.jdbc.url");
+        if (url == null) {
+            container = new PostgreSQLContainer<>("postgres:13");
+            container.start();
+            connection = DriverManager.getConnection(
+                    container.getJdbcUrl(), container.getUsername(), container.getPassword());
+        } else {
+            connection = DriverManager.getConnection(
+                    url, System.getProperty("bench.jdbc.user"), System.getProperty("bench.jdbc.password"));
+        }
+
+        try (Statement statement = connection.createStatement()) {
+            for (String table : new String[]{INDEXED_TABLE, PLAIN_TABLE}) {
+                statement.execute("DROP TABLE IF EXISTS " + table);
+                statement.execute("CREATE TABLE " + table + " (id integer PRIMARY KEY, name varchar(255), "
+                        + "email varchar(255), age integer, created_at timestamp, version bigint default 0)");
+                statement.execute("INSERT INTO " + table + " (id, name, email, age, created_at) "
+                        + "SELECT i, 'User' || i, 'user' || i || '@test.tt', i % 100, now() "
+                        + "FROM generate_series(1, " + rows + ") AS i");
+            }
+            statement.execute("CREATE UNIQUE INDEX " + INDEXED_TABLE + "_email_lower_key ON " + INDEXED_TABLE
+                    + " (lower(email))");
+            statement.execute("ANALYZE " + INDEXED_TABLE);
+            statement.execute("ANALYZE " + PLAIN_TABLE);
+        }
+
+        indexedLookup = connection.prepareStatement(lookupSql(INDEXED_TABLE));
+        plainLookup = connection.prepareStatement(lookupSql(PLAIN_TABLE));
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS " + INDEXED_TABLE);
+            statement.execute("DROP TABLE IF EXISTS " + PLAIN_TABLE);
+        }
+        connection.close();
+        if (container != null) {
+            container.stop();
+        }
+    }
+
+    @Benchmark
+    public Integer findByEmailIndexed() throws SQLException {
+        return lookup(indexedLookup);
+    }
+
+    @Benchmark
+    public Integer findByEmailSeqScan() throws SQLException {
+        return lookup(plainLookup);
+    }
+
+    private Integer lookup(PreparedStatement statement) throws SQLException {
+        statement.setString(1, "user" + ThreadLocalRandom.current().nextInt(1, rows + 1) + "@test.tt");
+        try (ResultSet resultSet = statement.executeQuery()) {
+            return resultSet.next() ? resultSet.getInt(1) : null;
+        }
+    }
+
+    private static String lookupSql(String table) {
+        return "SELECT id, name, email, age, created_at, version FROM " + table + " WHERE lower(email) = ?";
+    }
+}
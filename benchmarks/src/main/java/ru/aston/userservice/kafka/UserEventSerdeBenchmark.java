@@ -0,0 +1,52 @@
+package ru.aston.userservice.kafka;
+
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.aston.common.kafka.Command;
+import ru.aston.common.kafka.UserEvent;
+import ru.aston.common.kafka.UserEventDeserializer;
+import ru.aston.common.kafka.UserEventSerializer;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+import static ru.aston.userservice.kafka.Producer.USERS_TOPIC;
+
+//Бинарный формат UserEvent топика USERS.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 3, jvmArgsAppend = "-Dlogback.configurationFile=logback-bench.xml")
+public class UserEventSerdeBenchmark {
+    private final UserEventSerializer serializer = new UserEventSerializer();
+    private final UserEventDeserializer deserializer = new UserEventDeserializer();
+    private UserEvent event;
+    private byte[] data;
+
+    @Setup
+    public void setUp() {
+        event = new UserEvent(Command.UPDATE, 1, null, "user1@test.tt", "User1", 1L, Instant.now());
+        data = serializer.serialize(USERS_TOPIC, event);
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return serializer.serialize(USERS_TOPIC, event);
+    }
+
+    @Benchmark
+    public UserEvent deserialize() {
+        return deserializer.deserialize(USERS_TOPIC, data);
+    }
+}
@@ -0,0 +1,162 @@
+package ru.aston.userservice.loadtest;
+
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+
+//Нагрузочный прогон запущенного user-service: N клиентов без пауз читают случайных пользователей
+//в течение заданного времени, для каждого N в лог пишутся пропускная способность, перцентили задержки и ошибки.
+//Сравнение режимов: прогон при USERS_VIRTUAL_THREADS=true и при USERS_VIRTUAL_THREADS=false.
+//
+//java -cp target/benchmarks.jar ru.aston.userservice.loadtest.UserServiceLoadTest \
+//     [baseUrl=http://localhost:8181] [clients=50,200,1000] [seconds=30] [users=1000]
+public class UserServiceLoadTest {
+    private static final Logger logger = LoggerFactory.getLogger(UserServiceLoadTest.class);
+    private static final int FIRST_ID = 900_000;
+
+    private final HttpClient client;
+    private final String baseUrl;
+    private final int users;
+
+    private UserServiceLoadTest(String baseUrl, int users) {
+        this.client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        this.baseUrl = baseUrl;
+        this.users = users;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = args.length > 0 ? args[0] : "http://localhost:8181";
+        int[] clients = Arrays.stream((args.length > 1 ? args[1] : "50,200,1000").split(","))
+                .mapToInt(Integer::parseInt)
+                .toArray();
+        Duration duration = Duration.ofSeconds(args.length > 2 ? Integer.parseInt(args[2]) : 30);
+        int users = args.length > 3 ? Integer.parseInt(args[3]) : 1000;
+
+        UserServiceLoadTest test = new UserServiceLoadTest(baseUrl, users);
+        test.seed();
+        try {
+            for (int count : clients) {
+                test.run(count, duration).log(count);
+            }
+        } finally {
+            test.cleanUp();
+        }
+    }
+
+    private Result run(int clients, Duration duration) throws Exception {
+        long deadline = System.nanoTime() + duration.toNanos();
+        List<Future<Result>> futures = new ArrayList<>(clients);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < clients; i++) {
+                futures.add(executor.submit(() -> readUntil(deadline)));
+            }
+        }
+        Result total = new Result(new ArrayList<>(), 0);
+        for (Future<Result> future : futures) {
+            total = total.plus(future.get());
+        }
+        return total.withDuration(duration);
+    }
+
+    private Result readUntil(long deadline) {
+        List<Long> latencies = new ArrayList<>();
+        int errors = 0;
+        while (System.nanoTime() < deadline) {
+            int id = FIRST_ID + ThreadLocalRandom.current().nextInt(users);
+            long start = System.nanoTime();
+            try {
+                HttpResponse<Void> response = client.send(
+                        HttpRequest.newBuilder(URI.create(baseUrl + "/api/users/read/id/" + id))
+                                .timeout(Duration.ofSeconds(30))
+                                .GET()
+                                .build(),
+                        HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() != 200) {
+                    errors++;
+                }
+            } catch (Exception e) {
+                errors++;
+            }
+            latencies.add(System.nanoTime() - start);
+        }
+        return new Result(latencies, errors);
+    }
+
+    private void seed() throws Exception {
+        String body = IntStream.range(FIRST_ID, FIRST_ID + users)
+                .mapToObj(id -> String.format(
+                        "{\"id\":%d,\"name\":\"Load\",\"email\":\"load_%d@test.tt\",\"age\":30,"
+                                + "\"createdAt\":\"2025-01-01T00:00:00\"}", id, id))
+                .collect(Collectors.joining(",", "[", "]"));
+        put("/api/users/batch/create", body);
+    }
+
+    private void cleanUp() throws Exception {
+        String body = IntStream.range(FIRST_ID, FIRST_ID + users)
+                .mapToObj(String::valueOf)
+                .collect(Collectors.joining(",", "[", "]"));
+        put("/api/users/batch/delete", body);
+    }
+
+    private void put(String path, String body) throws Exception {
+        HttpResponse<String> response = client.send(
+                HttpRequest.newBuilder(URI.create(baseUrl + path))
+                        .header("Content-Type", "application/json")
+                        .PUT(HttpRequest.BodyPublishers.ofString(body))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException(path + " -> " + response.statusCode() + " " + response.body());
+        }
+    }
+
+    private record Result(List<Long> latencies, int errors, Duration duration) {
+        Result(List<Long> latencies, int errors) {
+            this(latencies, errors, Duration.ZERO);
+        }
+
+        Result plus(Result other) {
+            latencies.addAll(other.latencies);
+            return new Result(latencies, errors + other.errors, duration);
+        }
+
+        Result withDuration(Duration duration) {
+            return new Result(latencies, errors, duration);
+        }
+
+        void log(int clients) {
+            long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+            logger.info("run() clients = {}, requests = {}, req/s = {}, p50 ms = {}, p99 ms = {}, max ms = {}, errors = {}",
+                    clients, sorted.length, Math.round(sorted.length / (duration.toMillis() / 1000.0)),
+                    millis(sorted, 0.50), millis(sorted, 0.99), millis(sorted, 1.0), errors);
+        }
+
+        private static String millis(long[] sorted, double percentile) {
+            if (sorted.length == 0) {
+                return "0.0";
+            }
+            int index = (int) Math.ceil(percentile * sorted.length) - 1;
+            return String.format(Locale.ROOT, "%.1f", sorted[Math.max(index, 0)] / 1_000_000.0);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package ru.aston.userservice.service.impl;
+
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.aston.userservice.dao.UserDao;
+import ru.aston.userservice.entity.User;
+import ru.aston.userservice.model.UserDTO;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+//Чтение UserServiceImpl без базы: UserDao заменён заглушкой, в замер входит преобразование сущности в UserDTO
+//для read. Страницы findAll UserDao отдаёт сразу в виде UserDTO, замерять в сервисе нечего.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 3, jvmArgsAppend = "-Dlogback.configurationFile=logback-bench.xml")
+public class UserServiceReadBenchmark {
+    private UserServiceImpl userService;
+
+    @Setup
+    public void setUp() {
+        User user = user(1);
+        UserDao userDao = (UserDao) Proxy.newProxyInstance(UserDao.class.getClassLoader(),
+                new Class<?>[]{UserDao.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "findById" -> Optional.of(user);
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+        userService = new UserServiceImpl(userDao, null, null);
+    }
+
+    @Benchmark
+    public Optional<UserDTO> getUserById() {
+        return userService.getUserById(1);
+    }
+
+    private static User user(int id) {
+        return User.builder().
+                id(id).
+                name("User" + id).
+                email("user" + id + "@test.tt").
+                age(30).
+                createdAt(LocalDateTime.of(2025, 1, 1, 12, 0)).
+                build();
+    }
+}
@@ -0,0 +1,27 @@
+package ru.aston.common.kafka;
+
+public enum Command {
+    CREATE((byte) 1),
+    UPDATE((byte) 2),
+    DELETE((byte) 3);
+
+    //Код команды в бинарном формате UserEvent; не зависит от порядка констант.
+    private final byte code;
+
+    Command(byte code) {
+        this.code = code;
+    }
+
+    public byte code() {
+        return code;
+    }
+
+    public static Command fromCode(byte code) {
+        for (Command command : values()) {
+            if (command.code == code) {
+                return command;
+            }
+        }
+        throw new IllegalArgumentException("Unknown command code: " + code);
+    }
+}
@@ -0,0 +1,17 @@
+package ru.aston.common.kafka;
+
+
+import java.time.Instant;
+
+//Событие топика USERS: пишет user-service, читают mail-service и gateway-service. Формат передачи - UserEventSerializer.
+//previousId заполняется, только если при обновлении изменился id пользователя.
+public record UserEvent(
+        Command command,
+        Integer id,
+        Integer previousId,
+        String email,
+        String name,
+        long version,
+        Instant timestamp
+) {
+}
@@ -0,0 +1,53 @@
+package ru.aston.common.kafka;
+
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+import static ru.aston.common.kafka.UserEventSerializer.FORMAT_VERSION;
+import static ru.aston.common.kafka.UserEventSerializer.NO_ID;
+
+public class UserEventDeserializer implements Deserializer<UserEvent> {
+
+    @Override
+    public UserEvent deserialize(String topic, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            byte formatVersion = buffer.get();
+            if (formatVersion != FORMAT_VERSION) {
+                throw new SerializationException("Unsupported UserEvent format version: " + formatVersion);
+            }
+            Command command = Command.fromCode(buffer.get());
+            int id = buffer.getInt();
+            int previousId = buffer.getInt();
+            long version = buffer.getLong();
+            Instant timestamp = Instant.ofEpochMilli(buffer.getLong());
+            String email = getString(buffer);
+            String name = getString(buffer);
+            return new UserEvent(command, id, previousId == NO_ID ? null : previousId, email, name, version, timestamp);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new SerializationException("Malformed UserEvent", e);
+        }
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        short length = buffer.getShort();
+        if (length < 0) {
+            return null;
+        }
+        if (length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+}
@@ -0,0 +1,66 @@
+package ru.aston.common.kafka;
+
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+//Бинарный формат UserEvent, версия 1 (big-endian):
+//  byte   версия формата
+//  byte   код команды
+//  int    id
+//  int    previousId, -1 если нет
+//  long   version
+//  long   timestamp, мс от эпохи
+//  short  длина email в байтах UTF-8, затем байты
+//  short  длина name в байтах UTF-8 (-1 если null), затем байты
+public class UserEventSerializer implements Serializer<UserEvent> {
+    public static final byte FORMAT_VERSION = 1;
+    static final int NO_ID = -1;
+    static final int FIXED_SIZE = 1 + 1 + 4 + 4 + 8 + 8 + 2 + 2;
+
+    @Override
+    public byte[] serialize(String topic, UserEvent event) {
+        if (event == null) {
+            return null;
+        }
+        byte[] email = utf8(event.email());
+        byte[] name = utf8(event.name());
+        ByteBuffer buffer = ByteBuffer.allocate(FIXED_SIZE + length(email) + length(name));
+        buffer.put(FORMAT_VERSION);
+        buffer.put(event.command().code());
+        buffer.putInt(event.id());
+        buffer.putInt(event.previousId() == null ? NO_ID : event.previousId());
+        buffer.putLong(event.version());
+        buffer.putLong(event.timestamp().toEpochMilli());
+        putString(buffer, email);
+        putString(buffer, name);
+        return buffer.array();
+    }
+
+    private static byte[] utf8(String value) {
+        if (value == null) {
+            return null;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > Short.MAX_VALUE) {
+            throw new SerializationException("Field is too long: " + bytes.length + " bytes");
+        }
+        return bytes;
+    }
+
+    private static int length(byte[] bytes) {
+        return bytes == null ? 0 : bytes.length;
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] bytes) {
+        if (bytes == null) {
+            buffer.putShort((short) -1);
+        } else {
+            buffer.putShort((short) bytes.length);
+            buffer.put(bytes);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package ru.aston.common.tracing;
+
+
+import io.opentelemetry.exporter.logging.LoggingSpanExporter;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+
+
+//Экспорт завершённых спанов в лог сервиса при tracing.log-spans=true: запрос через gateway, user-service,
+//Kafka и mail-service находится по общему traceId без внешнего коллектора. В проде заменяется OTLP-экспортером.
+//Подключается автоконфигурацией в каждом сервисе, где есть opentelemetry-exporter-logging.
+@AutoConfiguration
+@ConditionalOnClass(LoggingSpanExporter.class)
+@ConditionalOnProperty(name = "tracing.log-spans", havingValue = "true")
+public class LoggingTracingAutoConfiguration {
+
+    @Bean
+    public SpanExporter loggingSpanExporter() {
+        return LoggingSpanExporter.create();
+    }
+}
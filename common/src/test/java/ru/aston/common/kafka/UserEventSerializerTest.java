@@ -0,0 +1,62 @@
+package ru.aston.common.kafka;
+
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UserEventSerializerTest {
+    private final UserEventSerializer serializer = new UserEventSerializer();
+    private final UserEventDeserializer deserializer = new UserEventDeserializer();
+
+    @Test
+    void roundTrip_whenAllFieldsSet_restoresEvent() {
+        UserEvent event = new UserEvent(Command.UPDATE, 7, 3, "тест@example.com", "Иван",
+                1_700_000_000_123L, Instant.ofEpochMilli(1_700_000_000_456L));
+
+        assertEquals(event, deserializer.deserialize("USERS", serializer.serialize("USERS", event)));
+    }
+
+    @Test
+    void roundTrip_whenOptionalFieldsNull_restoresNulls() {
+        UserEvent event = new UserEvent(Command.DELETE, 7, null, "test@example.com", null,
+                1L, Instant.ofEpochMilli(2L));
+
+        UserEvent restored = deserializer.deserialize("USERS", serializer.serialize("USERS", event));
+
+        assertNull(restored.previousId());
+        assertNull(restored.name());
+        assertEquals(event, restored);
+    }
+
+    @Test
+    void deserialize_whenUnknownFormatVersion_throws() {
+        byte[] data = serializer.serialize("USERS", new UserEvent(Command.CREATE, 1, null, "a@b.c", "A",
+                1L, Instant.EPOCH));
+        data[0] = 99;
+
+        assertThrows(SerializationException.class, () -> deserializer.deserialize("USERS", data));
+    }
+
+    @Test
+    void deserialize_whenUnknownCommand_throws() {
+        byte[] data = serializer.serialize("USERS", new UserEvent(Command.CREATE, 1, null, "a@b.c", "A",
+                1L, Instant.EPOCH));
+        data[1] = 42;
+
+        assertThrows(SerializationException.class, () -> deserializer.deserialize("USERS", data));
+    }
+
+    @Test
+    void deserialize_whenTruncated_throws() {
+        byte[] data = serializer.serialize("USERS", new UserEvent(Command.CREATE, 1, null, "a@b.c", "A",
+                1L, Instant.EPOCH));
+
+        assertThrows(SerializationException.class,
+                () -> deserializer.deserialize("USERS", Arrays.copyOf(data, data.length - 2)));
+    }
+}
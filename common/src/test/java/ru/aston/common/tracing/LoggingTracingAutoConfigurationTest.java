@@ -0,0 +1,25 @@
+package ru.aston.common.tracing;
+
+
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LoggingTracingAutoConfigurationTest {
+    private final ApplicationContextRunner runner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(LoggingTracingAutoConfiguration.class));
+
+    @Test
+    void whenLogSpansEnabled_registersExporter() {
+        runner.withPropertyValues("tracing.log-spans=true")
+                .run(context -> assertEquals(1, context.getBeansOfType(SpanExporter.class).size()));
+    }
+
+    @Test
+    void whenLogSpansNotSet_doesNotRegisterExporter() {
+        runner.run(context -> assertTrue(context.getBeansOfType(SpanExporter.class).isEmpty()));
+    }
+}
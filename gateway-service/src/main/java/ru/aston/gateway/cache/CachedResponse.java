@@ -0,0 +1,13 @@
+package ru.aston.gateway.cache;
+
+
+import org.springframework.http.MediaType;
+
+//Сохранённый ответ user-service: тело целиком и валидаторы для условных запросов.
+record CachedResponse(
+        MediaType contentType,
+        byte[] body,
+        String eTag,
+        long lastModified
+) {
+}
@@ -0,0 +1,162 @@
+package ru.aston.gateway.cache;
+
+
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.List;
+
+
+//Отдаёт GET-ответы user-service из UserResponseCache без обращения к сервису и сохраняет в кэш ответы 200.
+//Поддерживает If-None-Match/If-Modified-Since: при совпадении валидаторов возвращается 304 без тела.
+//Успешный ответ на изменение сбрасывает кэш до отправки клиенту: следующее чтение того же клиента
+//не получит данные до изменения, даже если событие USERS ещё не пришло.
+@Component
+public class ResponseCacheFilter implements GlobalFilter, Ordered {
+    public static final String CACHE_HEADER = "X-Cache";
+
+    private static final Logger logger = LoggerFactory.getLogger(ResponseCacheFilter.class);
+
+    private final UserResponseCache cache;
+
+    public ResponseCacheFilter(UserResponseCache cache) {
+        this.cache = cache;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        if (request.getMethod() != HttpMethod.GET) {
+            if (isWrite(request.getMethod())) {
+                exchange.getResponse().beforeCommit(() -> {
+                    HttpStatusCode status = exchange.getResponse().getStatusCode();
+                    if (status != null && status.is2xxSuccessful()) {
+                        cache.evictAfterWrite(request);
+                    }
+                    return Mono.empty();
+                });
+            }
+            return chain.filter(exchange);
+        }
+        UserResponseCache.Key key = cache.keyOf(request);
+        if (key == null) {
+            return chain.filter(exchange);
+        }
+        CachedResponse cached = cache.get(key);
+        if (cached != null) {
+            logger.debug("filter() hit {}", request.getPath());
+            return writeCached(exchange, cached);
+        }
+        return chain.filter(exchange.mutate().response(new CachingResponse(exchange, key)).build());
+    }
+
+    //Раньше NettyWriteResponseFilter, чтобы тело ответа сервиса проходило через CachingResponse.
+    @Override
+    public int getOrder() {
+        return NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1;
+    }
+
+    private static boolean isWrite(HttpMethod method) {
+        return method == HttpMethod.POST || method == HttpMethod.PUT || method == HttpMethod.PATCH
+                || method == HttpMethod.DELETE;
+    }
+
+    private Mono<Void> writeCached(ServerWebExchange exchange, CachedResponse cached) {
+        ServerHttpResponse response = exchange.getResponse();
+        HttpHeaders headers = response.getHeaders();
+        headers.setETag(cached.eTag());
+        headers.setLastModified(cached.lastModified());
+        headers.set(CACHE_HEADER, "HIT");
+        if (notModified(exchange.getRequest().getHeaders(), cached.eTag(), cached.lastModified())) {
+            response.setStatusCode(HttpStatus.NOT_MODIFIED);
+            return response.setComplete();
+        }
+        response.setStatusCode(HttpStatus.OK);
+        headers.setContentType(cached.contentType());
+        headers.setContentLength(cached.body().length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(cached.body())));
+    }
+
+    static boolean notModified(HttpHeaders requestHeaders, String eTag, long lastModified) {
+        List<String> ifNoneMatch = requestHeaders.getIfNoneMatch();
+        if (!ifNoneMatch.isEmpty()) {
+            return ifNoneMatch.stream().anyMatch(tag -> tag.equals("*") || weakMatch(tag, eTag));
+        }
+        long ifModifiedSince = requestHeaders.getIfModifiedSince();
+        return ifModifiedSince >= 0 && lastModified / 1000 <= ifModifiedSince / 1000;
+    }
+
+    private static boolean weakMatch(String tag, String eTag) {
+        return stripWeak(tag).equals(stripWeak(eTag));
+    }
+
+    private static String stripWeak(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+
+    //Собирает тело ответа 200, дополняет его ETag/Last-Modified, если сервис их не прислал, и кладёт в кэш.
+    private class CachingResponse extends ServerHttpResponseDecorator {
+        private final ServerWebExchange exchange;
+        private final UserResponseCache.Key key;
+
+        CachingResponse(ServerWebExchange exchange, UserResponseCache.Key key) {
+            super(exchange.getResponse());
+            this.exchange = exchange;
+            this.key = key;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            if (getStatusCode() == null || !getStatusCode().isSameCodeAs(HttpStatus.OK)) {
+                return super.writeWith(body);
+            }
+            return DataBufferUtils.join(Flux.from(body)).flatMap(joined -> {
+                byte[] bytes = new byte[joined.readableByteCount()];
+                joined.read(bytes);
+                DataBufferUtils.release(joined);
+                return write(bytes);
+            });
+        }
+
+        private Mono<Void> write(byte[] bytes) {
+            HttpHeaders headers = getHeaders();
+            if (headers.getETag() == null) {
+                headers.setETag("\"" + DigestUtils.md5DigestAsHex(bytes) + "\"");
+            }
+            if (headers.getLastModified() < 0) {
+                headers.setLastModified(Instant.now());
+            }
+            headers.set(CACHE_HEADER, "MISS");
+            cache.put(key, new CachedResponse(headers.getContentType(), bytes, headers.getETag(),
+                    headers.getLastModified()));
+
+            if (notModified(exchange.getRequest().getHeaders(), headers.getETag(), headers.getLastModified())) {
+                setStatusCode(HttpStatus.NOT_MODIFIED);
+                headers.remove(HttpHeaders.CONTENT_LENGTH);
+                headers.remove(HttpHeaders.TRANSFER_ENCODING);
+                return setComplete();
+            }
+            return super.writeWith(Mono.just(bufferFactory().wrap(bytes)));
+        }
+    }
+}
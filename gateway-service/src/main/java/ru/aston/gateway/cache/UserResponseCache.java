@@ -0,0 +1,183 @@
+package ru.aston.gateway.cache;
+
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+//Кэш GET-ответов user-service: read/id/{id} по id пользователя, findAll и findAll/page по пути и параметрам.
+//Ответ зависит от Accept и Accept-Language, поэтому они входят в ключ; сочетаний этих заголовков в кэше
+//не больше MAX_VARIANTS, запросы с новыми сочетаниями сверх него идут в сервис без кэша.
+//Событие USERS и успешный запрос на изменение через этот gateway сбрасывают ответы по затронутым id и все списки.
+//Метрики cache.* с тегом cache=gateway.users / gateway.user-collections.
+@Component
+public class UserResponseCache implements MeterBinder {
+    private static final Logger logger = LoggerFactory.getLogger(UserResponseCache.class);
+    private static final int MAX_VARIANTS = 16;
+
+    private final PathPattern readPattern;
+    private final PathPattern findAllPattern;
+    private final PathPattern pagePattern;
+    private final PathPattern updatePattern;
+    private final PathPattern deletePattern;
+    private final PathPattern usersPattern;
+    private final int maxEntryBytes;
+    private final Cache<UserKey, CachedResponse> users;
+    private final Cache<String, CachedResponse> collections;
+    //Значения Accept и Accept-Language, с которыми ответы лежат в кэше: по ним сбрасываются все варианты ответа.
+    private final Set<String> variants = ConcurrentHashMap.newKeySet();
+    //Растёт при каждом сбросе: ответ, запрошенный до сброса, в кэш уже не попадёт.
+    private final AtomicLong generation = new AtomicLong();
+
+    public UserResponseCache(@Value("${gateway.cache.users-path:/api/users}") String usersPath,
+                             @Value("${gateway.cache.max-bytes:67108864}") long maxBytes,
+                             @Value("${gateway.cache.max-entry-bytes:1048576}") int maxEntryBytes,
+                             @Value("${gateway.cache.user-ttl:30s}") Duration userTtl,
+                             @Value("${gateway.cache.collection-ttl:5s}") Duration collectionTtl) {
+        PathPatternParser parser = PathPatternParser.defaultInstance;
+        this.readPattern = parser.parse(usersPath + "/read/id/{id}");
+        this.findAllPattern = parser.parse(usersPath + "/findAll");
+        this.pagePattern = parser.parse(usersPath + "/findAll/page");
+        this.updatePattern = parser.parse(usersPath + "/update/old-id/{id}");
+        this.deletePattern = parser.parse(usersPath + "/delete/id/{id}");
+        this.usersPattern = parser.parse(usersPath + "/**");
+        this.maxEntryBytes = maxEntryBytes;
+        this.users = Caffeine.newBuilder()
+                .maximumWeight(maxBytes / 2)
+                .weigher((UserKey key, CachedResponse response) -> response.body().length)
+                .expireAfterWrite(userTtl)
+                .recordStats()
+                .build();
+        this.collections = Caffeine.newBuilder()
+                .maximumWeight(maxBytes / 2)
+                .weigher((String key, CachedResponse response) -> response.body().length)
+                .expireAfterWrite(collectionTtl)
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, users, "gateway.users");
+        CaffeineCacheMetrics.monitor(registry, collections, "gateway.user-collections");
+    }
+
+    //null - запрос не кэшируется.
+    Key keyOf(ServerHttpRequest request) {
+        PathContainer path = request.getPath().pathWithinApplication();
+        PathPattern.PathMatchInfo read = readPattern.matchAndExtract(path);
+        boolean collection = findAllPattern.matches(path) || pagePattern.matches(path);
+        if (read == null && !collection) {
+            return null;
+        }
+        String variant = variantOf(request);
+        if (variant == null) {
+            return null;
+        }
+        String query = request.getURI().getRawQuery();
+        if (read != null) {
+            Integer id = parseId(read);
+            return id != null && query == null ? new Key(new UserKey(id, variant), null, generation.get()) : null;
+        }
+        String collectionKey = (query == null ? path.value() : path.value() + "?" + query) + "|" + variant;
+        return new Key(null, collectionKey, generation.get());
+    }
+
+    CachedResponse get(Key key) {
+        return key.user() != null ? users.getIfPresent(key.user()) : collections.getIfPresent(key.collection());
+    }
+
+    boolean fits(int bodyBytes) {
+        return bodyBytes <= maxEntryBytes;
+    }
+
+    void put(Key key, CachedResponse response) {
+        if (key.generation() != generation.get() || !fits(response.body().length)) {
+            return;
+        }
+        if (key.user() != null) {
+            users.put(key.user(), response);
+        } else {
+            collections.put(key.collection(), response);
+        }
+    }
+
+    public void evict(Integer userId, Integer previousUserId) {
+        logger.debug("evict() userId = {}, previousUserId = {}", userId, previousUserId);
+        generation.incrementAndGet();
+        for (String variant : variants) {
+            users.invalidate(new UserKey(userId, variant));
+            if (previousUserId != null) {
+                users.invalidate(new UserKey(previousUserId, variant));
+            }
+        }
+        collections.invalidateAll();
+    }
+
+    //Успешное изменение через этот gateway: сброс не ждёт события USERS. Для update и delete известен id,
+    //create и batch-запросы сбрасывают весь кэш.
+    void evictAfterWrite(ServerHttpRequest request) {
+        PathContainer path = request.getPath().pathWithinApplication();
+        if (!usersPattern.matches(path)) {
+            return;
+        }
+        PathPattern.PathMatchInfo write = updatePattern.matchAndExtract(path);
+        if (write == null) {
+            write = deletePattern.matchAndExtract(path);
+        }
+        Integer id = write == null ? null : parseId(write);
+        if (id != null) {
+            evict(id, null);
+        } else {
+            logger.debug("evictAfterWrite() all, path = {}", path);
+            generation.incrementAndGet();
+            users.invalidateAll();
+            collections.invalidateAll();
+        }
+    }
+
+    //null - новое сочетание заголовков сверх MAX_VARIANTS.
+    private String variantOf(ServerHttpRequest request) {
+        HttpHeaders headers = request.getHeaders();
+        String variant = String.join(",", headers.getOrEmpty(HttpHeaders.ACCEPT)) + "|"
+                + String.join(",", headers.getOrEmpty(HttpHeaders.ACCEPT_LANGUAGE));
+        if (!variants.contains(variant)) {
+            if (variants.size() >= MAX_VARIANTS) {
+                return null;
+            }
+            variants.add(variant);
+        }
+        return variant;
+    }
+
+    private static Integer parseId(PathPattern.PathMatchInfo match) {
+        try {
+            return Integer.valueOf(match.getUriVariables().get("id"));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    record UserKey(Integer id, String variant) {
+    }
+
+    record Key(UserKey user, String collection, long generation) {
+    }
+}
@@ -0,0 +1,40 @@
+package ru.aston.gateway.config;
+
+
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.boot.ssl.SslBundles;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
+import ru.aston.common.kafka.UserEvent;
+import ru.aston.common.kafka.UserEventDeserializer;
+
+import java.util.Map;
+
+
+@Configuration
+public class KafkaConfig {
+    public static final String USER_EVENT_LISTENER_FACTORY = "userEventListenerContainerFactory";
+
+    @Bean(USER_EVENT_LISTENER_FACTORY)
+    public ConcurrentKafkaListenerContainerFactory<String, UserEvent> userEventListenerContainerFactory(
+            KafkaProperties properties, ObjectProvider<SslBundles> sslBundles
+    ) {
+        Map<String, Object> config = properties.buildConsumerProperties(sslBundles.getIfAvailable());
+        config.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        //ошибка чтения не повторяется на каждом poll: DefaultErrorHandler контейнера пишет её в лог и пропускает запись;
+        //в USERS-dlt такие записи передаёт mail-service
+        config.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ErrorHandlingDeserializer.class);
+        config.put(ErrorHandlingDeserializer.VALUE_DESERIALIZER_CLASS, UserEventDeserializer.class);
+        ConcurrentKafkaListenerContainerFactory<String, UserEvent> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(new DefaultKafkaConsumerFactory<>(config));
+        //спан сброса кэша продолжает трассу изменения пользователя из заголовка traceparent
+        factory.getContainerProperties().setObservationEnabled(true);
+        return factory;
+    }
+}
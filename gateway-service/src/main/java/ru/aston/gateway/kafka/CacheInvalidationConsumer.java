@@ -0,0 +1,35 @@
+package ru.aston.gateway.kafka;
+
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Service;
+import ru.aston.gateway.cache.UserResponseCache;
+import ru.aston.common.kafka.UserEvent;
+
+import static ru.aston.gateway.config.KafkaConfig.USER_EVENT_LISTENER_FACTORY;
+
+
+//Каждый экземпляр gateway читает USERS в собственной группе и сбрасывает свой кэш ответов.
+@Service
+public class CacheInvalidationConsumer {
+    private static final Logger logger = LoggerFactory.getLogger(CacheInvalidationConsumer.class);
+
+    private final UserResponseCache cache;
+
+    public CacheInvalidationConsumer(UserResponseCache cache) {
+        this.cache = cache;
+    }
+
+    @KafkaListener(
+            topics = "USERS",
+            groupId = "${spring.application.name}-cache-${random.uuid}",
+            containerFactory = USER_EVENT_LISTENER_FACTORY,
+            properties = {"auto.offset.reset=latest"}
+    )
+    public void consume(final UserEvent event) {
+        logger.debug("consume() id = {}, previousId = {}, command = {}", event.id(), event.previousId(), event.command());
+        cache.evict(event.id(), event.previousId());
+    }
+}
@@ -0,0 +1,160 @@
+package ru.aston.gateway.cache;
+
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static ru.aston.gateway.cache.ResponseCacheFilter.CACHE_HEADER;
+
+public class ResponseCacheFilterTest {
+    private static final String BODY = "{\"id\":1,\"name\":\"One\"}";
+
+    private UserResponseCache cache;
+    private ResponseCacheFilter filter;
+    private AtomicInteger backendCalls;
+    private GatewayFilterChain backend;
+
+    @BeforeEach
+    void setUp() {
+        cache = new UserResponseCache("/api/users", 1 << 20, 1024, Duration.ofMinutes(1), Duration.ofMinutes(1));
+        filter = new ResponseCacheFilter(cache);
+        backendCalls = new AtomicInteger();
+        backend = exchange -> {
+            backendCalls.incrementAndGet();
+            ServerHttpResponse response = exchange.getResponse();
+            response.setStatusCode(HttpStatus.OK);
+            response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+            return response.writeWith(Mono.just(response.bufferFactory().wrap(BODY.getBytes(StandardCharsets.UTF_8))));
+        };
+    }
+
+    @Test
+    void filter_whenRepeatedRead_servesSecondFromCache() {
+        MockServerWebExchange first = get("/api/users/read/id/1");
+        MockServerWebExchange second = get("/api/users/read/id/1");
+
+        filter.filter(first, backend).block();
+        filter.filter(second, backend).block();
+
+        assertEquals(1, backendCalls.get());
+        assertEquals("MISS", first.getResponse().getHeaders().getFirst(CACHE_HEADER));
+        assertEquals("HIT", second.getResponse().getHeaders().getFirst(CACHE_HEADER));
+        assertEquals(BODY, second.getResponse().getBodyAsString().block());
+        assertEquals(first.getResponse().getHeaders().getETag(), second.getResponse().getHeaders().getETag());
+    }
+
+    @Test
+    void filter_whenIfNoneMatchMatches_returnsNotModified() {
+        MockServerWebExchange first = get("/api/users/findAll/page?size=2");
+        filter.filter(first, backend).block();
+        String eTag = first.getResponse().getHeaders().getETag();
+
+        MockServerWebExchange conditional = MockServerWebExchange.from(MockServerHttpRequest
+                .get("/api/users/findAll/page?size=2").header(HttpHeaders.IF_NONE_MATCH, eTag));
+        filter.filter(conditional, backend).block();
+
+        assertEquals(1, backendCalls.get());
+        assertEquals(HttpStatus.NOT_MODIFIED, conditional.getResponse().getStatusCode());
+        assertEquals("", conditional.getResponse().getBodyAsString().defaultIfEmpty("").block());
+    }
+
+    @Test
+    void filter_whenUserEvicted_goesToBackendAgain() {
+        filter.filter(get("/api/users/read/id/1"), backend).block();
+        filter.filter(get("/api/users/findAll"), backend).block();
+
+        cache.evict(1, null);
+        filter.filter(get("/api/users/read/id/1"), backend).block();
+        filter.filter(get("/api/users/findAll"), backend).block();
+
+        assertEquals(4, backendCalls.get());
+    }
+
+    @Test
+    void filter_whenEvictedDuringRequest_doesNotCacheStaleResponse() {
+        GatewayFilterChain evictingBackend = exchange -> {
+            cache.evict(1, null);
+            return backend.filter(exchange);
+        };
+
+        filter.filter(get("/api/users/read/id/1"), evictingBackend).block();
+        filter.filter(get("/api/users/read/id/1"), backend).block();
+
+        assertEquals(2, backendCalls.get());
+    }
+
+    @Test
+    void filter_whenNotCacheablePath_alwaysGoesToBackend() {
+        filter.filter(get("/api/users/findAll/stream"), backend).block();
+        filter.filter(get("/api/users/findAll/stream"), backend).block();
+
+        assertEquals(2, backendCalls.get());
+    }
+
+    @Test
+    void filter_whenAcceptLanguageDiffers_goesToBackendAgain() {
+        filter.filter(MockServerWebExchange.from(MockServerHttpRequest.get("/api/users/read/id/1")
+                .header(HttpHeaders.ACCEPT_LANGUAGE, "ru")), backend).block();
+        filter.filter(MockServerWebExchange.from(MockServerHttpRequest.get("/api/users/read/id/1")
+                .header(HttpHeaders.ACCEPT_LANGUAGE, "en")), backend).block();
+        filter.filter(MockServerWebExchange.from(MockServerHttpRequest.get("/api/users/read/id/1")
+                .header(HttpHeaders.ACCEPT_LANGUAGE, "ru")), backend).block();
+
+        assertEquals(2, backendCalls.get());
+    }
+
+    @Test
+    void filter_whenUpdateSucceeds_evictsUserBeforeEvent() {
+        filter.filter(get("/api/users/read/id/1"), backend).block();
+        filter.filter(get("/api/users/findAll"), backend).block();
+
+        filter.filter(MockServerWebExchange.from(MockServerHttpRequest.put("/api/users/update/old-id/1")), backend)
+                .block();
+        filter.filter(get("/api/users/read/id/1"), backend).block();
+        filter.filter(get("/api/users/findAll"), backend).block();
+
+        assertEquals(5, backendCalls.get());
+    }
+
+    @Test
+    void filter_whenCreateSucceeds_evictsAllUsers() {
+        filter.filter(get("/api/users/read/id/1"), backend).block();
+
+        filter.filter(MockServerWebExchange.from(MockServerHttpRequest.post("/api/users/create")), backend).block();
+        filter.filter(get("/api/users/read/id/1"), backend).block();
+
+        assertEquals(3, backendCalls.get());
+    }
+
+    @Test
+    void filter_whenWriteFails_keepsCache() {
+        GatewayFilterChain failingBackend = exchange -> {
+            exchange.getResponse().setStatusCode(HttpStatus.PRECONDITION_FAILED);
+            return exchange.getResponse().setComplete();
+        };
+        filter.filter(get("/api/users/read/id/1"), backend).block();
+
+        filter.filter(MockServerWebExchange.from(MockServerHttpRequest.put("/api/users/update/old-id/1")),
+                failingBackend).block();
+        filter.filter(get("/api/users/read/id/1"), backend).block();
+
+        assertEquals(1, backendCalls.get());
+    }
+
+    private MockServerWebExchange get(String uri) {
+        return MockServerWebExchange.from(MockServerHttpRequest.get(uri));
+    }
+}
@@ -0,0 +1,101 @@
+package ru.aston.mailservice.config;
+
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.kafka.ConcurrentKafkaListenerContainerFactoryConfigurer;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.boot.ssl.SslBundles;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaOperations;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.MicrometerConsumerListener;
+import org.springframework.kafka.core.MicrometerProducerListener;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
+import org.springframework.util.backoff.FixedBackOff;
+import ru.aston.common.kafka.UserEvent;
+import ru.aston.common.kafka.UserEventDeserializer;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static ru.aston.mailservice.config.KafkaRetryConfig.RETRY_TEMPLATE;
+
+
+@Configuration
+public class KafkaConsumerConfig {
+    public static final String BATCH_FACTORY = "batchKafkaListenerContainerFactory";
+    public static final String DEAD_LETTER_TOPIC = "USERS-dlt";
+
+    //Пакетный режим: слушатель получает список записей за один poll и подтверждает его целиком.
+    //Значения USERS читаются бинарным UserEventDeserializer независимо от настроек из Config Server.
+    //Ошибку чтения перехватывает ErrorHandlingDeserializer: запись приходит в пакете со значением null,
+    //и Consumer передаёт её в USERS-dlt, а не получает исключение на каждом poll.
+    //Если слушатель не смог передать запись в USERS-retry или USERS-dlt (BatchListenerFailedException),
+    //пакет доставляется повторно с этой записи через mail.consumer.redelivery.interval, после attempts попыток
+    //запись передаётся в USERS-dlt.
+    @Bean(BATCH_FACTORY)
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> batchKafkaListenerContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+            KafkaProperties properties,
+            ObjectProvider<SslBundles> sslBundles,
+            MeterRegistry meterRegistry,
+            DeadLetterPublishingRecoverer deadLetterRecoverer,
+            @Value("${mail.consumer.redelivery.interval:1s}") Duration redeliveryInterval,
+            @Value("${mail.consumer.redelivery.attempts:10}") long redeliveryAttempts
+    ) {
+        Map<String, Object> config = properties.buildConsumerProperties(sslBundles.getIfAvailable());
+        config.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        config.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ErrorHandlingDeserializer.class);
+        config.put(ErrorHandlingDeserializer.VALUE_DESERIALIZER_CLASS, UserEventDeserializer.class);
+
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        DefaultKafkaConsumerFactory<Object, Object> consumerFactory = new DefaultKafkaConsumerFactory<>(config);
+        //kafka.consumer.* из метрик клиента, в том числе отставание records-lag-max
+        consumerFactory.addListener(new MicrometerConsumerListener<>(meterRegistry));
+        configurer.configure(factory, consumerFactory);
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.setCommonErrorHandler(new DefaultErrorHandler(deadLetterRecoverer,
+                new FixedBackOff(redeliveryInterval.toMillis(), redeliveryAttempts - 1)));
+        return factory;
+    }
+
+    //Записи USERS, которые mail-service не может обработать. Непрочитанная запись пишется исходными байтами,
+    //прочитанная - тем же форматом, что и USERS. Партицию выбирает producer: в USERS-dlt их может быть меньше.
+    @Bean
+    public DeadLetterPublishingRecoverer deadLetterRecoverer(
+            KafkaProperties properties,
+            ObjectProvider<SslBundles> sslBundles,
+            MeterRegistry meterRegistry,
+            @Qualifier(RETRY_TEMPLATE) KafkaTemplate<String, UserEvent> retryTemplate
+    ) {
+        Map<String, Object> config = properties.buildProducerProperties(sslBundles.getIfAvailable());
+        config.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        config.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class);
+        DefaultKafkaProducerFactory<String, byte[]> producerFactory = new DefaultKafkaProducerFactory<>(config);
+        producerFactory.addListener(new MicrometerProducerListener<>(meterRegistry));
+
+        Map<Class<?>, KafkaOperations<?, ?>> templates = new LinkedHashMap<>();
+        templates.put(byte[].class, new KafkaTemplate<>(producerFactory));
+        templates.put(UserEvent.class, retryTemplate);
+        return new DeadLetterPublishingRecoverer(templates,
+                (record, e) -> new TopicPartition(DEAD_LETTER_TOPIC, -1));
+    }
+}
@@ -0,0 +1,75 @@
+package ru.aston.mailservice.config;
+
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.boot.ssl.SslBundles;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.annotation.EnableKafkaRetryTopic;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.MicrometerConsumerListener;
+import org.springframework.kafka.core.MicrometerProducerListener;
+import ru.aston.common.kafka.UserEvent;
+import ru.aston.common.kafka.UserEventDeserializer;
+import ru.aston.common.kafka.UserEventSerializer;
+
+import java.util.Map;
+
+
+//Повторы неудачных писем вне основного потока USERS: Consumer перекладывает такие записи в USERS-retry,
+//RetryConsumer обрабатывает их с задержками через топики повторов и в конце - DLT.
+@EnableKafkaRetryTopic
+@Configuration
+public class KafkaRetryConfig {
+    public static final String RETRY_TEMPLATE = "retryKafkaTemplate";
+    public static final String RETRY_FACTORY = "retryKafkaListenerContainerFactory";
+
+    //Записи USERS-retry, топиков повторов и DLT пишутся тем же бинарным форматом, что и USERS.
+    @Bean(RETRY_TEMPLATE)
+    public KafkaTemplate<String, UserEvent> retryKafkaTemplate(
+            KafkaProperties properties,
+            ObjectProvider<SslBundles> sslBundles,
+            MeterRegistry meterRegistry
+    ) {
+        Map<String, Object> config = properties.buildProducerProperties(sslBundles.getIfAvailable());
+        config.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        config.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, UserEventSerializer.class);
+        config.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        config.put(ProducerConfig.ACKS_CONFIG, "all");
+
+        DefaultKafkaProducerFactory<String, UserEvent> producerFactory = new DefaultKafkaProducerFactory<>(config);
+        producerFactory.addListener(new MicrometerProducerListener<>(meterRegistry));
+        KafkaTemplate<String, UserEvent> template = new KafkaTemplate<>(producerFactory);
+        template.setObservationEnabled(true);
+        return template;
+    }
+
+    //Повторы читаются по одной записи: задержка топика повторов выдерживается паузой партиции,
+    //и ошибка одной записи не задерживает остальные.
+    @Bean(RETRY_FACTORY)
+    public ConcurrentKafkaListenerContainerFactory<String, UserEvent> retryKafkaListenerContainerFactory(
+            KafkaProperties properties,
+            ObjectProvider<SslBundles> sslBundles,
+            MeterRegistry meterRegistry
+    ) {
+        Map<String, Object> config = properties.buildConsumerProperties(sslBundles.getIfAvailable());
+        config.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        config.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, UserEventDeserializer.class);
+
+        ConcurrentKafkaListenerContainerFactory<String, UserEvent> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        DefaultKafkaConsumerFactory<String, UserEvent> consumerFactory = new DefaultKafkaConsumerFactory<>(config);
+        consumerFactory.addListener(new MicrometerConsumerListener<>(meterRegistry));
+        factory.setConsumerFactory(consumerFactory);
+        factory.getContainerProperties().setObservationEnabled(true);
+        return factory;
+    }
+}
@@ -0,0 +1,27 @@
+package ru.aston.mailservice.config;
+
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.LocaleResolver;
+import org.springframework.web.servlet.i18n.AcceptHeaderLocaleResolver;
+
+import java.util.List;
+import java.util.Locale;
+
+
+//Язык писем REST-запросов - из заголовка Accept-Language среди языков шаблонов mail.templates.locales;
+//без заголовка или с другим языком - mail.templates.default-locale.
+@Configuration
+public class LocaleConfig {
+
+    @Bean
+    public LocaleResolver localeResolver(@Value("${mail.templates.locales:ru,en}") List<Locale> locales,
+                                         @Value("${mail.templates.default-locale:ru}") Locale defaultLocale) {
+        AcceptHeaderLocaleResolver resolver = new AcceptHeaderLocaleResolver();
+        resolver.setSupportedLocales(locales);
+        resolver.setDefaultLocale(defaultLocale);
+        return resolver;
+    }
+}
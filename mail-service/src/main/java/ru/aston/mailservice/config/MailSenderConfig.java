@@ -0,0 +1,45 @@
+package ru.aston.mailservice.config;
+
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.mail.MailProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.aston.mailservice.smtp.PooledJavaMailSender;
+
+import java.time.Duration;
+import java.util.Properties;
+
+
+//Заменяет JavaMailSender из MailSenderAutoConfiguration; при mail.smtp.pool.enabled=false используется стандартный.
+@Configuration
+@EnableConfigurationProperties(MailProperties.class)
+@ConditionalOnProperty(name = "mail.smtp.pool.enabled", havingValue = "true", matchIfMissing = true)
+public class MailSenderConfig {
+
+    @Bean
+    public PooledJavaMailSender mailSender(
+            MailProperties properties,
+            @Value("${mail.smtp.pool.size:16}") int poolSize,
+            @Value("${mail.smtp.pool.idle-timeout:30s}") Duration idleTimeout,
+            @Value("${mail.smtp.pool.max-messages-per-connection:100}") int maxMessagesPerConnection
+    ) {
+        PooledJavaMailSender sender = new PooledJavaMailSender(poolSize, idleTimeout, maxMessagesPerConnection);
+        sender.setHost(properties.getHost());
+        if (properties.getPort() != null) {
+            sender.setPort(properties.getPort());
+        }
+        sender.setUsername(properties.getUsername());
+        sender.setPassword(properties.getPassword());
+        sender.setProtocol(properties.getProtocol());
+        if (properties.getDefaultEncoding() != null) {
+            sender.setDefaultEncoding(properties.getDefaultEncoding().name());
+        }
+        Properties javaMailProperties = new Properties();
+        javaMailProperties.putAll(properties.getProperties());
+        sender.setJavaMailProperties(javaMailProperties);
+        return sender;
+    }
+}
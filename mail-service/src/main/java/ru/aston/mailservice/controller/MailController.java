@@ -5,10 +5,18 @@ import org.slf4j.LoggerFactory;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import ru.aston.mailservice.model.BulkMailRequest;
+import ru.aston.mailservice.model.BulkMailResult;
+import ru.aston.mailservice.service.BulkMailService;
 import ru.aston.mailservice.service.MailServiceImpl;
 
+import java.util.List;
+import java.util.Locale;
+
 
 @RequestMapping("api/mail")
 @RestController
@@ -17,24 +25,34 @@ public class MailController
     private static final Logger logger = LoggerFactory.getLogger(MailController.class);
 
     private MailServiceImpl mailService;
+    private BulkMailService bulkMailService;
 
-    public MailController(MailServiceImpl mailService)
+    public MailController(MailServiceImpl mailService, BulkMailService bulkMailService)
     {
         this.mailService = mailService;
+        this.bulkMailService = bulkMailService;
     }
 
     @GetMapping("sendAdd/{mail}")
-    public ResponseEntity<Void> sendAdd(@PathVariable String mail) {
+    public ResponseEntity<Void> sendAdd(@PathVariable String mail, Locale locale) {
         logger.info("sendAdd() mail = {}", mail);
-        mailService.sendEmailAboutAdd(mail);
+        mailService.sendEmailAboutAdd(mail, locale);
         return ResponseEntity.ok().build();
     }
 
 
     @GetMapping("sendRemove/{mail}")
-    public ResponseEntity<Void> sendRemove(@PathVariable String mail) {
+    public ResponseEntity<Void> sendRemove(@PathVariable String mail, Locale locale) {
         logger.info("sendRemove() mail = {}", mail);
-        mailService.sendEmailAboutDelete(mail);
+        mailService.sendEmailAboutDelete(mail, locale);
         return ResponseEntity.ok().build();
     }
+
+    //Результат для каждого адреса; ошибки отдельных писем не меняют код ответа.
+    //Язык писем - Accept-Language запроса, см. LocaleConfig.
+    @PostMapping("bulk")
+    public ResponseEntity<List<BulkMailResult>> sendBulk(@RequestBody BulkMailRequest request, Locale locale) {
+        logger.info("sendBulk() type = {}, locale = {}", request.type(), locale);
+        return ResponseEntity.ok(bulkMailService.sendBulk(request.type(), request.recipients(), locale));
+    }
 }
@@ -0,0 +1,10 @@
+package ru.aston.mailservice.exception;
+
+
+//Запрос рассылки не принят: нет вида письма или адресатов, либо адресатов больше mail.bulk.max-recipients.
+public class BulkMailValidationException extends RuntimeException {
+
+    public BulkMailValidationException(String message) {
+        super(message);
+    }
+}
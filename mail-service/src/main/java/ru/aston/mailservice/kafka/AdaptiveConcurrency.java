@@ -0,0 +1,63 @@
+package ru.aston.mailservice.kafka;
+
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+
+//Адаптивный режим слушателя USERS: пока суммарное отставание выше порога, число потоков растёт
+//на один до max-concurrency; когда отставание падает ниже десятой части порога, число потоков
+//по одному возвращается к mail.consumer.concurrency. Новое значение применяется перезапуском контейнера.
+@Component
+@ConditionalOnProperty(name = "mail.consumer.adaptive.enabled", havingValue = "true")
+public class AdaptiveConcurrency {
+    private static final Logger logger = LoggerFactory.getLogger(AdaptiveConcurrency.class);
+
+    private final UsersConsumerEndpoint usersConsumer;
+    private final int baseConcurrency;
+    private final int maxConcurrency;
+    private final long lagThreshold;
+
+    public AdaptiveConcurrency(UsersConsumerEndpoint usersConsumer,
+                               @Value("${mail.consumer.concurrency:1}") int baseConcurrency,
+                               @Value("${mail.consumer.adaptive.max-concurrency:4}") int maxConcurrency,
+                               @Value("${mail.consumer.adaptive.lag-threshold:1000}") long lagThreshold) {
+        this.usersConsumer = usersConsumer;
+        this.baseConcurrency = baseConcurrency;
+        this.maxConcurrency = maxConcurrency;
+        this.lagThreshold = lagThreshold;
+    }
+
+    @Scheduled(fixedDelayString = "${mail.consumer.adaptive.interval-ms:10000}",
+            initialDelayString = "${mail.consumer.adaptive.interval-ms:10000}")
+    public void adjust() {
+        ConcurrentMessageListenerContainer<?, ?> container = usersConsumer.container();
+        Map<String, Long> partitionLag = usersConsumer.partitionLag();
+        //после перезапуска метрик отставания нет до первой выборки - решение откладывается
+        if (!container.isRunning() || partitionLag.isEmpty()) {
+            return;
+        }
+
+        long lag = partitionLag.values().stream().mapToLong(Long::longValue).sum();
+        int current = container.getConcurrency();
+        int target = current;
+        if (lag > lagThreshold && current < maxConcurrency) {
+            target = current + 1;
+        } else if (lag < lagThreshold / 10 && current > baseConcurrency) {
+            target = current - 1;
+        }
+        if (target != current) {
+            logger.info("adjust() lag = {}, concurrency = {} -> {}", lag, current, target);
+            container.stop();
+            container.setConcurrency(target);
+            container.start();
+        }
+    }
+}
@@ -1,40 +1,300 @@
 package ru.aston.mailservice.kafka;
 
 
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.annotation.Observed;
+import io.micrometer.observation.transport.ReceiverContext;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.internals.RecordHeaders;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.log.LogAccessor;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
 import org.springframework.kafka.support.Acknowledgment;
-import org.springframework.kafka.support.KafkaHeaders;
-import org.springframework.messaging.handler.annotation.Header;
-import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.kafka.support.serializer.SerializationUtils;
+import org.springframework.mail.SimpleMailMessage;
 import org.springframework.stereotype.Service;
+import ru.aston.mailservice.service.BulkMailService;
+import ru.aston.mailservice.service.MailDispatcher;
 import ru.aston.mailservice.service.MailServiceImpl;
+import ru.aston.mailservice.template.MailTemplateType;
+import ru.aston.mailservice.template.Notification;
+import ru.aston.mailservice.template.Recipient;
+import ru.aston.common.kafka.Command;
+import ru.aston.common.kafka.UserEvent;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static ru.aston.mailservice.config.KafkaConsumerConfig.BATCH_FACTORY;
+import static ru.aston.mailservice.config.KafkaConsumerConfig.DEAD_LETTER_TOPIC;
+import static ru.aston.mailservice.config.KafkaRetryConfig.RETRY_TEMPLATE;
 
 @Service
 public class Consumer {
+    public static final String USERS_LISTENER = "users-mail";
 
     private static final Logger logger = LoggerFactory.getLogger(Consumer.class);
+    private static final String DISPATCH_OBSERVATION = "mail.dispatch";
+    private static final LogAccessor LOG_ACCESSOR = new LogAccessor(Consumer.class);
 
     private final MailServiceImpl mailService;
+    private final MailDispatcher mailDispatcher;
+    private final ObservationRegistry observationRegistry;
+    private final KafkaTemplate<String, UserEvent> retryTemplate;
+    private final DeadLetterPublishingRecoverer deadLetterRecoverer;
+    private final MailDeduplicator mailDeduplicator;
+    private final BulkMailService bulkMailService;
+    private final boolean digest;
 
-    public Consumer(MailServiceImpl mailService) {
+    public Consumer(MailServiceImpl mailService, MailDispatcher mailDispatcher,
+                    ObservationRegistry observationRegistry,
+                    @Qualifier(RETRY_TEMPLATE) KafkaTemplate<String, UserEvent> retryTemplate,
+                    DeadLetterPublishingRecoverer deadLetterRecoverer,
+                    MailDeduplicator mailDeduplicator,
+                    BulkMailService bulkMailService,
+                    @Value("${mail.digest.enabled:false}") boolean digest) {
         this.mailService = mailService;
+        this.mailDispatcher = mailDispatcher;
+        this.observationRegistry = observationRegistry;
+        this.retryTemplate = retryTemplate;
+        this.deadLetterRecoverer = deadLetterRecoverer;
+        this.mailDeduplicator = mailDeduplicator;
+        this.bulkMailService = bulkMailService;
+        this.digest = digest;
     }
 
 
-    @KafkaListener(topics = "USERS")
-    public void consume(final @Payload String message,
-                        final @Header(KafkaHeaders.RECEIVED_KEY) String key,
+    //Письма пакета отправляются параллельно после схлопывания в MailDeduplicator, по одному на событие
+    //или сводками по адресатам (mail.digest.enabled); смещения подтверждаются только после завершения всех отправок.
+    //Неудачные записи перекладываются в USERS-retry, и пакет подтверждается целиком: одно плохое письмо
+    //не задерживает партицию. Если запись не удалось переложить в USERS-retry, она передаётся обработчику ошибок
+    //контейнера (BatchListenerFailedException): пакет доставляется повторно с неё, после всех попыток - в USERS-dlt.
+    //Непрочитанные записи (значение null после ErrorHandlingDeserializer) передаются в USERS-dlt.
+    @Observed(name = "mail.consume")
+    @KafkaListener(
+            id = USERS_LISTENER,
+            idIsGroup = false,
+            topics = "USERS",
+            containerFactory = BATCH_FACTORY,
+            concurrency = "${mail.consumer.concurrency:1}",
+            properties = {
+                    "max.poll.records=${mail.consumer.batch-size:100}",
+                    "fetch.max.wait.ms=${mail.consumer.fetch-max-wait-ms:500}",
+                    "fetch.min.bytes=${mail.consumer.fetch-min-bytes:1}"
+            }
+    )
+    public void consume(final List<ConsumerRecord<String, UserEvent>> records,
                         final Acknowledgment acknowledgment
     ) {
-        logger.info("consume() key = {}, message = {}", key, message);
-        if (Command.CREATE.is(key)) {
-            mailService.sendEmailAboutAdd(message);
-        } else if (Command.DELETE.is(key)) {
-            mailService.sendEmailAboutDelete(message);
+        List<ConsumerRecord<String, UserEvent>> readable = new ArrayList<>(records.size());
+        List<ConsumerRecord<String, UserEvent>> unreadable = new ArrayList<>();
+        for (ConsumerRecord<String, UserEvent> record : records) {
+            (record.value() != null ? readable : unreadable).add(record);
         }
+        List<ConsumerRecord<String, UserEvent>> selected = mailDeduplicator.coalesce(readable).stream()
+                .filter(Consumer::hasAddress)
+                .toList();
+        logger.info("consume() records = {}, selected = {}, unreadable = {}", records.size(), selected.size(),
+                unreadable.size());
+
+        List<ConsumerRecord<String, UserEvent>> failed = digest ? sendDigests(selected) : sendEach(selected);
+        failed.forEach(record -> logger.warn("Ошибка отправки письма, запись передана на повтор. key = {}, message = {}",
+                record.key(), record.value()));
+        Map<ConsumerRecord<String, UserEvent>, Throwable> unsent = sendToRetry(failed);
 
+        //Записи до первой непереданной подтверждаются обработчиком ошибок, поэтому непрочитанные среди них
+        //передаются в USERS-dlt сейчас; остальные будут доставлены повторно вместе с непереданной.
+        ConsumerRecord<String, UserEvent> firstUnsent = unsent.keySet().stream()
+                .min(Comparator.comparingInt(records::indexOf))
+                .orElse(null);
+        int redeliverFrom = firstUnsent == null ? records.size() : records.indexOf(firstUnsent);
+        unreadable.stream()
+                .filter(record -> records.indexOf(record) < redeliverFrom)
+                .forEach(record -> deadLetter(records, record));
+        if (firstUnsent != null) {
+            logger.error("Запись не передана в {}, пакет будет доставлен повторно. partition = {}, offset = {}",
+                    RetryConsumer.RETRY_TOPIC, firstUnsent.partition(), firstUnsent.offset(), unsent.get(firstUnsent));
+            throw new BatchListenerFailedException("Запись не передана в " + RetryConsumer.RETRY_TOPIC,
+                    unsent.get(firstUnsent), redeliverFrom);
+        }
         acknowledgment.acknowledge();
     }
+
+    //Если USERS-dlt недоступен, запись и следующие за ней доставляются повторно обработчиком ошибок контейнера;
+    //уже отправленные письма MailDeduplicator не повторяет.
+    private void deadLetter(final List<ConsumerRecord<String, UserEvent>> records,
+                            final ConsumerRecord<String, UserEvent> record) {
+        Exception error = SerializationUtils.getExceptionFromHeader(record,
+                SerializationUtils.VALUE_DESERIALIZER_EXCEPTION_HEADER, LOG_ACCESSOR);
+        if (error == null) {
+            error = new IllegalStateException("Запись без значения");
+        }
+        logger.error("Запись USERS не прочитана и передана в {}. partition = {}, offset = {}",
+                DEAD_LETTER_TOPIC, record.partition(), record.offset(), error);
+        try {
+            deadLetterRecoverer.accept(record, null, error);
+        } catch (RuntimeException e) {
+            throw new BatchListenerFailedException("Запись не передана в " + DEAD_LETTER_TOPIC, e, records.indexOf(record));
+        }
+    }
+
+    private List<ConsumerRecord<String, UserEvent>> sendEach(final List<ConsumerRecord<String, UserEvent>> selected) {
+        List<CompletableFuture<Void>> sends = selected.stream()
+                .map(record -> mailDispatcher.submit(() -> dispatch(record)))
+                .toList();
+        CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new))
+                .exceptionally(e -> null)
+                .join();
+
+        List<ConsumerRecord<String, UserEvent>> failed = new ArrayList<>();
+        for (int i = 0; i < sends.size(); i++) {
+            if (sends.get(i).isCompletedExceptionally()) {
+                failed.add(selected.get(i));
+            }
+        }
+        return failed;
+    }
+
+    //Режим сводки для массовых изменений: события пакета группируются по адресу, и каждый адресат получает
+    //одно письмо на все свои события. Окно группировки - пакет poll, его растягивают
+    //mail.consumer.fetch-max-wait-ms и fetch-min-bytes. Сводки уходят частями по общим SMTP-сессиям.
+    private List<ConsumerRecord<String, UserEvent>> sendDigests(final List<ConsumerRecord<String, UserEvent>> selected) {
+        Map<String, List<ConsumerRecord<String, UserEvent>>> byAddress = new LinkedHashMap<>();
+        for (ConsumerRecord<String, UserEvent> record : selected) {
+            UserEvent event = record.value();
+            if (templateType(event.command()) != null && mailDeduplicator.tryMarkSent(event)) {
+                byAddress.computeIfAbsent(event.email().toLowerCase(Locale.ROOT), email -> new ArrayList<>())
+                        .add(record);
+            }
+        }
+
+        Map<SimpleMailMessage, List<ConsumerRecord<String, UserEvent>>> digests = new LinkedHashMap<>();
+        Map<SimpleMailMessage, Exception> failures;
+        try {
+            byAddress.values().forEach(group -> digests.put(
+                    bulkMailService.digest(group.getFirst().value().email(),
+                            group.stream().map(record -> notification(record.value())).toList()),
+                    group));
+            failures = bulkMailService.sendAll(new ArrayList<>(digests.keySet()));
+        } catch (RuntimeException e) {
+            byAddress.values().forEach(group -> group.forEach(record -> mailDeduplicator.release(record.value())));
+            throw e;
+        }
+
+        List<ConsumerRecord<String, UserEvent>> failed = new ArrayList<>();
+        digests.forEach((message, group) -> {
+            if (failures.containsKey(message)) {
+                group.forEach(record -> mailDeduplicator.release(record.value()));
+                failed.addAll(group);
+            }
+        });
+        logger.info("sendDigests() recipients = {}, failed = {}", digests.size(), failures.size());
+        return failed;
+    }
+
+    //Заголовки записи сохраняются, в том числе traceparent: повтор продолжает трассу исходного события.
+    //Результат - записи, которые переложить не удалось, с ошибкой: и исключение send() (например, таймаут
+    //метаданных), и отказ брокера.
+    private Map<ConsumerRecord<String, UserEvent>, Throwable> sendToRetry(
+            final List<ConsumerRecord<String, UserEvent>> failed) {
+        List<CompletableFuture<?>> sends = new ArrayList<>(failed.size());
+        for (ConsumerRecord<String, UserEvent> record : failed) {
+            CompletableFuture<?> send;
+            try {
+                send = retryTemplate.send(new ProducerRecord<>(RetryConsumer.RETRY_TOPIC, null,
+                        record.key(), record.value(), new RecordHeaders(record.headers().toArray())));
+            } catch (RuntimeException e) {
+                send = CompletableFuture.failedFuture(e);
+            }
+            sends.add(send);
+        }
+
+        Map<ConsumerRecord<String, UserEvent>, Throwable> unsent = new LinkedHashMap<>();
+        for (int i = 0; i < sends.size(); i++) {
+            try {
+                sends.get(i).join();
+            } catch (CompletionException | CancellationException e) {
+                unsent.put(failed.get(i), e.getCause() == null ? e : e.getCause());
+            }
+        }
+        return unsent;
+    }
+
+    //Пакетный слушатель наблюдением Spring Kafka не покрывается, поэтому спан открывается для каждой записи:
+    //родитель берётся из заголовка traceparent, который записал KafkaTemplate user-service.
+    //Событие, уже отправленное в окне дедупликации (повторная доставка пакета или повтор), пропускается.
+    void dispatch(final ConsumerRecord<String, UserEvent> record) {
+        if (!mailDeduplicator.tryMarkSent(record.value())) {
+            logger.info("dispatch() duplicate, key = {}, version = {}", record.key(), record.value().version());
+            return;
+        }
+        ReceiverContext<ConsumerRecord<String, UserEvent>> context = new ReceiverContext<>((carrier, key) -> {
+            Header header = carrier.headers().lastHeader(key);
+            return header == null ? null : new String(header.value(), StandardCharsets.UTF_8);
+        });
+        context.setCarrier(record);
+        try {
+            Observation.createNotStarted(DISPATCH_OBSERVATION, () -> context, observationRegistry)
+                    .lowCardinalityKeyValue("command", record.value().command().name())
+                    .observe(() -> dispatch(record.value()));
+        } catch (RuntimeException e) {
+            mailDeduplicator.release(record.value());
+            throw e;
+        }
+    }
+
+    //Событию без адреса письмо не отправить ни сейчас, ни после повтора - оно пропускается.
+    private static boolean hasAddress(final ConsumerRecord<String, UserEvent> record) {
+        UserEvent event = record.value();
+        if (templateType(event.command()) == null || event.email() != null && !event.email().isBlank()) {
+            return true;
+        }
+        logger.warn("Событие без адреса, письмо не отправляется. partition = {}, offset = {}, message = {}",
+                record.partition(), record.offset(), event);
+        return false;
+    }
+
+    //UPDATE писем не порождает.
+    private void dispatch(final UserEvent event) {
+        logger.info("dispatch() command = {}, email = {}", event.command(), event.email());
+        switch (event.command()) {
+            case CREATE -> mailService.sendEmailAboutAdd(recipient(event));
+            case DELETE -> mailService.sendEmailAboutDelete(recipient(event));
+        }
+    }
+
+    //Язык адресата в событии USERS не передаётся - письмо на языке по умолчанию.
+    private static Recipient recipient(final UserEvent event) {
+        return new Recipient(event.email(), event.name(), event.id(), event.timestamp(), null);
+    }
+
+    private static Notification notification(final UserEvent event) {
+        return new Notification(templateType(event.command()), recipient(event));
+    }
+
+    //UPDATE писем не порождает.
+    private static MailTemplateType templateType(final Command command) {
+        return switch (command) {
+            case CREATE -> MailTemplateType.USER_CREATED;
+            case DELETE -> MailTemplateType.USER_DELETED;
+            default -> null;
+        };
+    }
 }
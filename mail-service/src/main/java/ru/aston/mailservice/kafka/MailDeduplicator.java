@@ -0,0 +1,114 @@
+package ru.aston.mailservice.kafka;
+
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.aston.common.kafka.UserEvent;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+
+//Лишние отправки при повторной доставке и всплесках событий USERS.
+//Отправленные события запоминаются на mail.dedup.window по ключу (id, command, version, timestamp): version -
+//@Version строки, timestamp - время записи события в outbox user-service; повторная доставка того же события
+//письма не порождает, а пользователь, созданный заново с тем же id и версией 0, отличается по timestamp.
+//В пакете повторы одного события схлопываются, а CREATE пользователя с последующим DELETE того же пользователя
+//в той же партиции не отправляют ничего.
+//Защита по возможности, не гарантия: отметки хранятся в памяти одного экземпляра mail-service, схлопывание -
+//только внутри одного пакета. После перезапуска, истечения окна или переназначения партиции другому
+//экземпляру повтор события может отправить письмо ещё раз.
+//Метрики cache.* с тегом cache=mail.sent-events.
+@Component
+public class MailDeduplicator {
+    private static final String SKIPPED = "mail.dedup.skipped";
+
+    private final Cache<String, Object> sent;
+    private final Counter duplicates;
+    private final Counter coalesced;
+
+    public MailDeduplicator(@Value("${mail.dedup.window:10m}") Duration window,
+                            @Value("${mail.dedup.max-size:100000}") long maxSize,
+                            MeterRegistry meterRegistry) {
+        this.sent = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(window)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, sent, "mail.sent-events");
+        this.duplicates = Counter.builder(SKIPPED)
+                .description("События USERS, не отправленные повторно")
+                .tag("reason", "duplicate")
+                .register(meterRegistry);
+        this.coalesced = Counter.builder(SKIPPED)
+                .description("События USERS, не отправленные повторно")
+                .tag("reason", "coalesced")
+                .register(meterRegistry);
+    }
+
+    //Записи пакета, по которым нужно отправить письма, в исходном порядке.
+    public List<ConsumerRecord<String, UserEvent>> coalesce(final List<ConsumerRecord<String, UserEvent>> records) {
+        List<ConsumerRecord<String, UserEvent>> selected = new ArrayList<>(records.size());
+        Set<String> keys = new HashSet<>();
+        Map<String, Integer> created = new HashMap<>();
+        for (ConsumerRecord<String, UserEvent> record : records) {
+            UserEvent event = record.value();
+            if (!keys.add(key(event))) {
+                duplicates.increment();
+                continue;
+            }
+            switch (event.command()) {
+                case CREATE -> created.put(user(record), selected.size());
+                case DELETE -> {
+                    Integer create = created.remove(user(record));
+                    if (create != null) {
+                        selected.set(create, null);
+                        coalesced.increment(2);
+                        continue;
+                    }
+                }
+                default -> {
+                }
+            }
+            selected.add(record);
+        }
+        selected.removeIf(Objects::isNull);
+        return selected;
+    }
+
+    //Проверка и отметка одним действием: из одновременных обработок одного события письмо отправляет только та,
+    //что получила true. Если отправка не удалась, отметку снимает release, и повтор сможет отправить письмо.
+    public boolean tryMarkSent(final UserEvent event) {
+        Object mark = new Object();
+        if (sent.get(key(event), key -> mark) != mark) {
+            duplicates.increment();
+            return false;
+        }
+        return true;
+    }
+
+    public void release(final UserEvent event) {
+        sent.invalidate(key(event));
+    }
+
+    private static String key(UserEvent event) {
+        return event.id() + ":" + event.command() + ":" + event.version() + ":" + event.timestamp();
+    }
+
+    //Порядок CREATE и DELETE одного пользователя гарантирован только внутри партиции.
+    private static String user(ConsumerRecord<String, UserEvent> record) {
+        return record.partition() + ":" + record.value().id();
+    }
+}
@@ -0,0 +1,70 @@
+package ru.aston.mailservice.kafka;
+
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.annotation.DltHandler;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.annotation.RetryableTopic;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.retry.annotation.Backoff;
+import org.springframework.stereotype.Service;
+import ru.aston.common.kafka.UserEvent;
+
+import static ru.aston.mailservice.config.KafkaRetryConfig.RETRY_FACTORY;
+import static ru.aston.mailservice.config.KafkaRetryConfig.RETRY_TEMPLATE;
+
+//Повтор писем, не отправленных из основного потока USERS. Каждая неудача переносит запись в следующий
+//топик повторов (USERS-retry-retry-0, -1, ...) с растущей задержкой; после последней попытки запись
+//попадает в USERS-retry-dlt и больше не обрабатывается.
+@Service
+public class RetryConsumer {
+    public static final String RETRY_TOPIC = "USERS-retry";
+    public static final String RETRY_LISTENER = "users-mail-retry";
+
+    private static final Logger logger = LoggerFactory.getLogger(RetryConsumer.class);
+
+    private final Consumer consumer;
+    private final Counter deadLetters;
+
+    public RetryConsumer(Consumer consumer, MeterRegistry meterRegistry) {
+        this.consumer = consumer;
+        this.deadLetters = Counter.builder("mail.dead-letters")
+                .description("Письма, не отправленные после всех повторов")
+                .register(meterRegistry);
+    }
+
+    @RetryableTopic(
+            attempts = "${mail.retry.attempts:5}",
+            backoff = @Backoff(
+                    delayExpression = "${mail.retry.delay-ms:1000}",
+                    multiplierExpression = "${mail.retry.multiplier:4}",
+                    maxDelayExpression = "${mail.retry.max-delay-ms:300000}"
+            ),
+            kafkaTemplate = RETRY_TEMPLATE,
+            listenerContainerFactory = RETRY_FACTORY
+    )
+    @KafkaListener(
+            id = RETRY_LISTENER,
+            idIsGroup = false,
+            topics = RETRY_TOPIC,
+            containerFactory = RETRY_FACTORY
+    )
+    public void retry(final ConsumerRecord<String, UserEvent> record) {
+        logger.info("retry() topic = {}, key = {}", record.topic(), record.key());
+        consumer.dispatch(record);
+    }
+
+    @DltHandler
+    public void deadLetter(final ConsumerRecord<String, UserEvent> record,
+                           @Header(name = KafkaHeaders.EXCEPTION_MESSAGE, required = false) String error
+    ) {
+        deadLetters.increment();
+        logger.error("Письмо не отправлено после всех повторов. key = {}, message = {}, error = {}",
+                record.key(), record.value(), error);
+    }
+}
@@ -0,0 +1,115 @@
+package ru.aston.mailservice.kafka;
+
+
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import ru.aston.mailservice.service.MailDispatcher;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+
+//Состояние слушателя USERS для дашборда: /actuator/usersconsumer.
+//Отставание и скорость чтения берутся из метрик клиентов Kafka контейнера, время обработки
+//и число отправок - из MailDispatcher.
+@Component
+@Endpoint(id = "usersconsumer")
+public class UsersConsumerEndpoint {
+    private static final String FETCH_METRICS = "consumer-fetch-manager-metrics";
+    private static final String LAG = "records-lag";
+    private static final String CONSUMED_RATE = "records-consumed-rate";
+
+    private final KafkaListenerEndpointRegistry registry;
+    private final MailDispatcher mailDispatcher;
+
+    public UsersConsumerEndpoint(KafkaListenerEndpointRegistry registry, MailDispatcher mailDispatcher) {
+        this.registry = registry;
+        this.mailDispatcher = mailDispatcher;
+    }
+
+    @ReadOperation
+    public Report report() {
+        ConcurrentMessageListenerContainer<?, ?> container = container();
+        Map<String, Long> partitionLag = partitionLag();
+        return new Report(
+                container.isRunning(),
+                container.getConcurrency(),
+                partitionLag.values().stream().mapToLong(Long::longValue).sum(),
+                partitionLag,
+                recordsPerSecond(),
+                processingMillis(),
+                mailDispatcher.inFlight(),
+                mailDispatcher.queued()
+        );
+    }
+
+    public ConcurrentMessageListenerContainer<?, ?> container() {
+        return (ConcurrentMessageListenerContainer<?, ?>) registry.getListenerContainer(Consumer.USERS_LISTENER);
+    }
+
+    //Отставание по назначенным партициям, ключ - topic-partition. Партиция без выборки после
+    //назначения метрики ещё не имеет и в ответ не попадает.
+    public Map<String, Long> partitionLag() {
+        Map<String, Long> lag = new TreeMap<>();
+        fetchMetrics(LAG).forEach((name, value) -> {
+            String partition = name.tags().get("partition");
+            if (partition != null) {
+                lag.merge(name.tags().get("topic") + "-" + partition, value.longValue(), Long::sum);
+            }
+        });
+        return lag;
+    }
+
+    //Скорость чтения всех потоков слушателя: среднее Kafka-клиента за окно метрик (30 секунд).
+    private double recordsPerSecond() {
+        return fetchMetrics(CONSUMED_RATE).entrySet().stream()
+                .filter(entry -> !entry.getKey().tags().containsKey("topic"))
+                .mapToDouble(Map.Entry::getValue)
+                .sum();
+    }
+
+    private Map<String, Double> processingMillis() {
+        HistogramSnapshot snapshot = mailDispatcher.processingTime().takeSnapshot();
+        Map<String, Double> millis = new LinkedHashMap<>();
+        for (ValueAtPercentile percentile : snapshot.percentileValues()) {
+            millis.put("p" + Math.round(percentile.percentile() * 100), percentile.value(TimeUnit.MILLISECONDS));
+        }
+        millis.put("mean", snapshot.mean(TimeUnit.MILLISECONDS));
+        millis.put("max", snapshot.max(TimeUnit.MILLISECONDS));
+        return millis;
+    }
+
+    private Map<MetricName, Double> fetchMetrics(String metric) {
+        Map<MetricName, Double> values = new LinkedHashMap<>();
+        for (Map<MetricName, ? extends Metric> client : container().metrics().values()) {
+            client.forEach((name, value) -> {
+                if (FETCH_METRICS.equals(name.group()) && metric.equals(name.name())
+                        && value.metricValue() instanceof Double number && !number.isNaN()) {
+                    values.put(name, number);
+                }
+            });
+        }
+        return values;
+    }
+
+    public record Report(
+            boolean running,
+            int concurrency,
+            long totalLag,
+            Map<String, Long> partitionLag,
+            double recordsPerSecond,
+            Map<String, Double> processingMillis,
+            int inFlight,
+            int queued
+    ) {
+    }
+}
@@ -0,0 +1,10 @@
+package ru.aston.mailservice.model;
+
+
+import ru.aston.mailservice.template.MailTemplateType;
+
+import java.util.List;
+
+//Рассылка одного вида письма по списку адресов: POST api/mail/bulk.
+public record BulkMailRequest(MailTemplateType type, List<String> recipients) {
+}
@@ -0,0 +1,12 @@
+package ru.aston.mailservice.model;
+
+
+//Итог рассылки для одного адреса. error заполняется для FAILED и INVALID.
+public record BulkMailResult(String email, Status status, String error) {
+
+    public enum Status {
+        SENT,
+        FAILED,
+        INVALID
+    }
+}
@@ -0,0 +1,151 @@
+package ru.aston.mailservice.service;
+
+
+import io.micrometer.observation.annotation.Observed;
+import jakarta.mail.internet.AddressException;
+import jakarta.mail.internet.InternetAddress;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.stereotype.Service;
+import ru.aston.mailservice.exception.BulkMailValidationException;
+import ru.aston.mailservice.model.BulkMailResult;
+import ru.aston.mailservice.template.MailTemplateType;
+import ru.aston.mailservice.template.MailTemplates;
+import ru.aston.mailservice.template.Notification;
+import ru.aston.mailservice.template.Recipient;
+import ru.aston.mailservice.template.RenderedMail;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+//Массовая отправка писем. Сообщения делятся на части по mail.bulk.chunk-size: часть уходит одним вызовом
+//send(SimpleMailMessage...) через одну SMTP-сессию пула, части отправляются параллельно через MailDispatcher.
+//Ошибка одного письма не прерывает остальные - результат известен для каждого сообщения.
+@Observed(name = "mail.bulk")
+@Service
+public class BulkMailService {
+    private static final Logger logger = LoggerFactory.getLogger(BulkMailService.class);
+
+    private final JavaMailSender mailSender;
+    private final MailTemplates mailTemplates;
+    private final MailDispatcher mailDispatcher;
+    private final String from;
+    private final int chunkSize;
+    private final int maxRecipients;
+
+    public BulkMailService(JavaMailSender mailSender,
+                           MailTemplates mailTemplates,
+                           MailDispatcher mailDispatcher,
+                           @Value("${spring.mail.username}") String from,
+                           @Value("${mail.bulk.chunk-size:50}") int chunkSize,
+                           @Value("${mail.bulk.max-recipients:1000}") int maxRecipients) {
+        this.mailSender = mailSender;
+        this.mailTemplates = mailTemplates;
+        this.mailDispatcher = mailDispatcher;
+        this.from = from;
+        this.chunkSize = chunkSize;
+        this.maxRecipients = maxRecipients;
+    }
+
+    public List<BulkMailResult> sendBulk(MailTemplateType type, List<String> emails) {
+        return sendBulk(type, emails, null);
+    }
+
+    //Повторы адреса отправляются один раз; адрес, который не разбирается как e-mail, получает INVALID без отправки.
+    //locale == null - язык mail.templates.default-locale.
+    public List<BulkMailResult> sendBulk(MailTemplateType type, List<String> emails, Locale locale) {
+        if (type == null || emails == null || emails.isEmpty()) {
+            throw new BulkMailValidationException("Mail type and recipients are required");
+        }
+        if (emails.size() > maxRecipients) {
+            throw new BulkMailValidationException("Too many recipients: " + emails.size() + ", max " + maxRecipients);
+        }
+        logger.info("sendBulk() type = {}, recipients = {}", type, emails.size());
+
+        List<BulkMailResult> results = new ArrayList<>();
+        List<SimpleMailMessage> messages = new ArrayList<>();
+        for (String email : new LinkedHashSet<>(emails)) {
+            String error = validate(email);
+            if (error != null) {
+                results.add(new BulkMailResult(email, BulkMailResult.Status.INVALID, error));
+            } else {
+                messages.add(message(email, mailTemplates.render(type, Recipient.of(email, locale))));
+            }
+        }
+
+        Map<SimpleMailMessage, Exception> failures = sendAll(messages);
+        for (SimpleMailMessage message : messages) {
+            String email = message.getTo()[0];
+            Exception failure = failures.get(message);
+            results.add(failure == null
+                    ? new BulkMailResult(email, BulkMailResult.Status.SENT, null)
+                    : new BulkMailResult(email, BulkMailResult.Status.FAILED, failure.getMessage()));
+        }
+        logger.info("sendBulk() sent = {}, failed = {}", messages.size() - failures.size(), failures.size());
+        return results;
+    }
+
+    //Сводка нескольких писем одному адресату, см. MailTemplates.renderDigest.
+    public SimpleMailMessage digest(String email, List<Notification> notifications) {
+        return message(email, mailTemplates.renderDigest(notifications));
+    }
+
+    //Неотправленные сообщения и причина; пустой результат - отправлено всё.
+    public Map<SimpleMailMessage, Exception> sendAll(List<SimpleMailMessage> messages) {
+        Map<SimpleMailMessage, Exception> failures = new ConcurrentHashMap<>();
+        List<CompletableFuture<Void>> chunks = new ArrayList<>();
+        for (int from = 0; from < messages.size(); from += chunkSize) {
+            List<SimpleMailMessage> chunk = messages.subList(from, Math.min(from + chunkSize, messages.size()));
+            chunks.add(mailDispatcher.submit(() -> send(chunk, failures)));
+        }
+        CompletableFuture.allOf(chunks.toArray(CompletableFuture[]::new)).join();
+        return failures;
+    }
+
+    private void send(List<SimpleMailMessage> chunk, Map<SimpleMailMessage, Exception> failures) {
+        try {
+            mailSender.send(chunk.toArray(SimpleMailMessage[]::new));
+        } catch (MailSendException e) {
+            if (e.getFailedMessages().isEmpty()) {
+                chunk.forEach(message -> failures.put(message, e));
+            } else {
+                e.getFailedMessages().forEach((message, cause) -> failures.put((SimpleMailMessage) message, cause));
+            }
+        } catch (MailException e) {
+            logger.error("Ошибка отправки части рассылки, писем = {}", chunk.size(), e);
+            chunk.forEach(message -> failures.put(message, e));
+        }
+    }
+
+    private SimpleMailMessage message(String email, RenderedMail mail) {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setFrom(from);
+        message.setTo(email);
+        message.setSubject(mail.subject());
+        message.setText(mail.body());
+        return message;
+    }
+
+    private static String validate(String email) {
+        if (email == null || email.isBlank()) {
+            return "Empty address";
+        }
+        try {
+            new InternetAddress(email, true).validate();
+            return null;
+        } catch (AddressException e) {
+            return e.getMessage();
+        }
+    }
+}
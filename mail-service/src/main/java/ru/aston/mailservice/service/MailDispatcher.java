@@ -0,0 +1,72 @@
+package ru.aston.mailservice.service;
+
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+
+//Параллельная отправка писем на виртуальных потоках. Число одновременных SMTP-вызовов
+//ограничено mail.dispatch.concurrency, остальные задачи ждут разрешения, не занимая потоков платформы.
+//Время выполнения задач, число выполняемых и ожидающих задач публикуются в метриках mail.dispatch.*.
+@Component
+public class MailDispatcher implements DisposableBean {
+    public static final String PROCESSING_TIMER = "mail.dispatch.processing";
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final int concurrency;
+    private final Semaphore permits;
+    private final Timer processing;
+
+    public MailDispatcher(@Value("${mail.dispatch.concurrency:16}") int concurrency, MeterRegistry meterRegistry) {
+        this.concurrency = concurrency;
+        this.permits = new Semaphore(concurrency);
+        this.processing = Timer.builder(PROCESSING_TIMER)
+                .description("Время обработки записи USERS после получения разрешения на отправку")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        Gauge.builder("mail.dispatch.in-flight", this, MailDispatcher::inFlight)
+                .description("Выполняемые отправки писем")
+                .register(meterRegistry);
+        Gauge.builder("mail.dispatch.queued", this, MailDispatcher::queued)
+                .description("Отправки писем, ожидающие разрешения")
+                .register(meterRegistry);
+    }
+
+    public CompletableFuture<Void> submit(Runnable task) {
+        return CompletableFuture.runAsync(() -> {
+            permits.acquireUninterruptibly();
+            try {
+                processing.record(task);
+            } finally {
+                permits.release();
+            }
+        }, executor);
+    }
+
+    public Timer processingTime() {
+        return processing;
+    }
+
+    public int inFlight() {
+        return concurrency - permits.availablePermits();
+    }
+
+    //Оценка: Semaphore не гарантирует точную длину очереди при одновременных изменениях.
+    public int queued() {
+        return permits.getQueueLength();
+    }
+
+    @Override
+    public void destroy() {
+        executor.close();
+    }
+}
@@ -1,6 +1,7 @@
 package ru.aston.mailservice.service;
 
 
+import io.micrometer.observation.annotation.Observed;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -8,9 +9,18 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
+import ru.aston.mailservice.template.MailTemplateType;
+import ru.aston.mailservice.template.MailTemplates;
+import ru.aston.mailservice.template.Recipient;
+import ru.aston.mailservice.template.RenderedMail;
 
+import java.util.Locale;
 
 
+
+//Таймер mail.send на каждое письмо, тег method - тип письма.
+//Тема и текст письма - шаблоны MailTemplates на языке адресата с его полями.
+@Observed(name = "mail.send")
 @Service
 public class MailServiceImpl{
 
@@ -18,26 +28,45 @@ public class MailServiceImpl{
 
     private String from;
     private  JavaMailSender mailSender;
+    private final MailTemplates mailTemplates;
 
     @Autowired
     public MailServiceImpl(JavaMailSender mailSender,
-        @Value("${spring.mail.username}") String from) {
+        @Value("${spring.mail.username}") String from,
+        MailTemplates mailTemplates) {
             this.mailSender = mailSender;
             this.from = from;
+            this.mailTemplates = mailTemplates;
     }
 
     public void sendEmailAboutDelete(String toEmail) {
-        logger.info("sendEmailAboutDelete() mail = {}", toEmail);
-        String subject = "Удаление";
-        String body = "Здравствуйте! Ваш аккаунт был удалён.";
-        sendEmail(toEmail, subject, body);
+        sendEmailAboutDelete(Recipient.of(toEmail));
+    }
+
+    public void sendEmailAboutDelete(String toEmail, Locale locale) {
+        sendEmailAboutDelete(Recipient.of(toEmail, locale));
+    }
+
+    public void sendEmailAboutDelete(Recipient recipient) {
+        logger.info("sendEmailAboutDelete() mail = {}", recipient.email());
+        sendEmail(recipient, mailTemplates.render(MailTemplateType.USER_DELETED, recipient));
     }
 
     public void sendEmailAboutAdd(String toEmail) {
-        logger.info("sendEmailAboutAdd() mail = {}", toEmail);
-        String subject = "Создание";
-        String body = "Здравствуйте! Ваш аккаунт на сайте ваш сайт был успешно создан.";
-        sendEmail(toEmail, subject, body);
+        sendEmailAboutAdd(Recipient.of(toEmail));
+    }
+
+    public void sendEmailAboutAdd(String toEmail, Locale locale) {
+        sendEmailAboutAdd(Recipient.of(toEmail, locale));
+    }
+
+    public void sendEmailAboutAdd(Recipient recipient) {
+        logger.info("sendEmailAboutAdd() mail = {}", recipient.email());
+        sendEmail(recipient, mailTemplates.render(MailTemplateType.USER_CREATED, recipient));
+    }
+
+    private void sendEmail(Recipient recipient, RenderedMail mail) {
+        sendEmail(recipient.email(), mail.subject(), mail.body());
     }
 
     private void sendEmail(String toEmail, String subject, String body) {
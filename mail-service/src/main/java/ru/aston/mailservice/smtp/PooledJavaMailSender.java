@@ -0,0 +1,152 @@
+package ru.aston.mailservice.smtp;
+
+
+import jakarta.mail.Address;
+import jakarta.mail.AuthenticationFailedException;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.lang.Nullable;
+import org.springframework.mail.MailAuthenticationException;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+
+
+//JavaMailSender с пулом подключённых SMTP-сессий. В отличие от JavaMailSenderImpl, который открывает
+//соединение (handshake, STARTTLS, AUTH) на каждый вызов send, сессия возвращается в пул и используется
+//повторно, пока не отправит maxMessagesPerConnection писем или не простоит дольше idleTimeout.
+public class PooledJavaMailSender extends JavaMailSenderImpl implements DisposableBean {
+    private static final Logger logger = LoggerFactory.getLogger(PooledJavaMailSender.class);
+    private static final long VALIDATE_AFTER_IDLE_MILLIS = Duration.ofSeconds(5).toMillis();
+
+    private final BlockingDeque<PooledTransport> idle = new LinkedBlockingDeque<>();
+    private final Semaphore permits;
+    private final long idleTimeoutMillis;
+    private final int maxMessagesPerConnection;
+
+    public PooledJavaMailSender(int poolSize, Duration idleTimeout, int maxMessagesPerConnection) {
+        this.permits = new Semaphore(poolSize, true);
+        this.idleTimeoutMillis = idleTimeout.toMillis();
+        this.maxMessagesPerConnection = maxMessagesPerConnection;
+    }
+
+    @Override
+    protected void doSend(MimeMessage[] mimeMessages, @Nullable Object[] originalMessages) throws MailException {
+        Map<Object, Exception> failedMessages = new LinkedHashMap<>();
+        PooledTransport transport = null;
+        try {
+            for (int i = 0; i < mimeMessages.length; i++) {
+                if (transport == null || transport.broken || transport.sent >= maxMessagesPerConnection) {
+                    release(transport);
+                    transport = null;
+                    transport = borrow(mimeMessages, originalMessages, i, failedMessages);
+                }
+
+                MimeMessage mimeMessage = mimeMessages[i];
+                try {
+                    if (mimeMessage.getSentDate() == null) {
+                        mimeMessage.setSentDate(new Date());
+                    }
+                    String messageId = mimeMessage.getMessageID();
+                    mimeMessage.saveChanges();
+                    if (messageId != null) {
+                        mimeMessage.setHeader("Message-ID", messageId);
+                    }
+                    Address[] addresses = mimeMessage.getAllRecipients();
+                    transport.transport.sendMessage(mimeMessage, addresses != null ? addresses : new Address[0]);
+                    transport.sent++;
+                } catch (MessagingException ex) {
+                    failedMessages.put(originalMessages != null ? originalMessages[i] : mimeMessage, ex);
+                    if (!transport.transport.isConnected()) {
+                        transport.broken = true;
+                    }
+                }
+            }
+        } finally {
+            release(transport);
+        }
+
+        if (!failedMessages.isEmpty()) {
+            throw new MailSendException(failedMessages);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        PooledTransport transport;
+        while ((transport = idle.pollFirst()) != null) {
+            close(transport);
+        }
+    }
+
+    //Если подключиться не удалось, в исключении - и письма, не отправленные ранее в этом вызове, и все оставшиеся.
+    private PooledTransport borrow(MimeMessage[] mimeMessages, @Nullable Object[] originalMessages, int from,
+                                   Map<Object, Exception> failedMessages) {
+        permits.acquireUninterruptibly();
+        try {
+            PooledTransport transport;
+            while ((transport = idle.pollFirst()) != null) {
+                long idleMillis = System.currentTimeMillis() - transport.releasedAt;
+                if (idleMillis < idleTimeoutMillis
+                        && (idleMillis < VALIDATE_AFTER_IDLE_MILLIS || transport.transport.isConnected())) {
+                    return transport;
+                }
+                close(transport);
+            }
+            return new PooledTransport(connectTransport());
+        } catch (AuthenticationFailedException ex) {
+            permits.release();
+            throw new MailAuthenticationException(ex);
+        } catch (Exception ex) {
+            permits.release();
+            for (int i = from; i < mimeMessages.length; i++) {
+                failedMessages.put(originalMessages != null ? originalMessages[i] : mimeMessages[i], ex);
+            }
+            throw new MailSendException("Mail server connection failed", ex, failedMessages);
+        }
+    }
+
+    private void release(@Nullable PooledTransport transport) {
+        if (transport == null) {
+            return;
+        }
+        if (transport.broken || transport.sent >= maxMessagesPerConnection) {
+            close(transport);
+        } else {
+            transport.releasedAt = System.currentTimeMillis();
+            idle.offerFirst(transport);
+        }
+        permits.release();
+    }
+
+    private void close(PooledTransport transport) {
+        try {
+            transport.transport.close();
+        } catch (MessagingException ex) {
+            logger.debug("Ошибка закрытия SMTP-соединения.", ex);
+        }
+    }
+
+    private static final class PooledTransport {
+        private final Transport transport;
+        private int sent;
+        private boolean broken;
+        private long releasedAt;
+
+        private PooledTransport(Transport transport) {
+            this.transport = transport;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package ru.aston.mailservice.template;
+
+
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+
+//Текст шаблона, разобранный один раз при загрузке: чередование готовых строк и полей адресата.
+//Отрисовка - только добавление частей в StringBuilder нужного размера, без разбора текста.
+final class CompiledTemplate {
+    private static final int FIELD_LENGTH = 32;
+
+    private final List<BiConsumer<StringBuilder, Recipient>> parts;
+    private final int expectedLength;
+
+    private CompiledTemplate(List<BiConsumer<StringBuilder, Recipient>> parts, int expectedLength) {
+        this.parts = parts;
+        this.expectedLength = expectedLength;
+    }
+
+    //Поля записываются как {name}; неизвестное поле или незакрытая скобка - ошибка загрузки, а не письма.
+    static CompiledTemplate compile(String source, DateTimeFormatter dateFormatter, String templateName) {
+        List<BiConsumer<StringBuilder, Recipient>> parts = new ArrayList<>();
+        int expectedLength = 0;
+        int position = 0;
+        while (position < source.length()) {
+            int open = source.indexOf('{', position);
+            if (open < 0) {
+                open = source.length();
+            }
+            if (open > position) {
+                String literal = source.substring(position, open);
+                parts.add((builder, recipient) -> builder.append(literal));
+                expectedLength += literal.length();
+            }
+            if (open == source.length()) {
+                break;
+            }
+            int close = source.indexOf('}', open);
+            if (close < 0) {
+                throw new IllegalStateException("Unclosed field in mail template " + templateName + ": " + source);
+            }
+            parts.add(field(source.substring(open + 1, close), dateFormatter, templateName));
+            expectedLength += FIELD_LENGTH;
+            position = close + 1;
+        }
+        return new CompiledTemplate(List.copyOf(parts), expectedLength);
+    }
+
+    String render(Recipient recipient) {
+        StringBuilder builder = new StringBuilder(expectedLength);
+        for (BiConsumer<StringBuilder, Recipient> part : parts) {
+            part.accept(builder, recipient);
+        }
+        return builder.toString();
+    }
+
+    private static BiConsumer<StringBuilder, Recipient> field(String field, DateTimeFormatter dateFormatter,
+                                                              String templateName) {
+        return switch (field) {
+            case "email" -> (builder, recipient) -> builder.append(Objects.toString(recipient.email(), ""));
+            case "name" -> (builder, recipient) -> builder.append(Objects.toString(recipient.name(), ""));
+            case "id" -> (builder, recipient) -> builder.append(Objects.toString(recipient.id(), ""));
+            case "date" -> (builder, recipient) -> dateFormatter.formatTo(
+                    recipient.date() == null ? Instant.now() : recipient.date(), builder);
+            default -> throw new IllegalStateException("Unknown field {" + field + "} in mail template " + templateName);
+        };
+    }
+}
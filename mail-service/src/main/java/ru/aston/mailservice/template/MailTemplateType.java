@@ -0,0 +1,20 @@
+package ru.aston.mailservice.template;
+
+
+//Виды писем. Шаблон вида лежит в mail/templates/<name>_<язык>.properties.
+public enum MailTemplateType {
+    USER_CREATED("user-created"),
+    USER_DELETED("user-deleted"),
+    //тема и вступление письма-сводки из нескольких писем одному адресату
+    USER_DIGEST("user-digest");
+
+    private final String templateName;
+
+    MailTemplateType(String templateName) {
+        this.templateName = templateName;
+    }
+
+    public String templateName() {
+        return templateName;
+    }
+}
@@ -0,0 +1,117 @@
+package ru.aston.mailservice.template;
+
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.FormatStyle;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+
+//Шаблоны писем mail/templates/<вид>_<язык>.properties (ключи subject и body, UTF-8).
+//Если в body есть {id}, нужен и body.without-id - текст письма адресату без номера пользователя (REST, рассылка).
+//Все шаблоны всех языков mail.templates.locales загружаются и разбираются при старте; отсутствие шаблона
+//языка по умолчанию или ошибка в шаблоне не дают сервису запуститься. Язык адресата без своего
+//шаблона получает письмо на языке по умолчанию.
+@Component
+public class MailTemplates {
+    private static final Logger logger = LoggerFactory.getLogger(MailTemplates.class);
+    private static final String LOCATION = "mail/templates/";
+    private static final String DIGEST_SEPARATOR = "\n\n";
+    private static final String ID_FIELD = "{id}";
+
+    private final Locale defaultLocale;
+    private final Map<MailTemplateType, Map<String, Compiled>> templates = new EnumMap<>(MailTemplateType.class);
+
+    public MailTemplates(@Value("${mail.templates.locales:ru,en}") List<Locale> locales,
+                         @Value("${mail.templates.default-locale:ru}") Locale defaultLocale,
+                         @Value("${mail.templates.zone:Europe/Moscow}") ZoneId zone) {
+        this.defaultLocale = defaultLocale;
+        for (MailTemplateType type : MailTemplateType.values()) {
+            Map<String, Compiled> byLanguage = new HashMap<>();
+            for (Locale locale : locales) {
+                Resource resource = new ClassPathResource(LOCATION + type.templateName() + "_" + locale.getLanguage()
+                        + ".properties");
+                if (resource.exists()) {
+                    byLanguage.put(locale.getLanguage(), compile(resource, locale, zone));
+                }
+            }
+            if (!byLanguage.containsKey(defaultLocale.getLanguage())) {
+                throw new IllegalStateException("No mail template " + type.templateName() + " for default locale "
+                        + defaultLocale);
+            }
+            templates.put(type, byLanguage);
+        }
+        logger.info("MailTemplates() types = {}, locales = {}", templates.size(), locales);
+    }
+
+    public RenderedMail render(MailTemplateType type, Recipient recipient) {
+        Map<String, Compiled> byLanguage = templates.get(type);
+        Locale locale = recipient.locale() == null ? defaultLocale : recipient.locale();
+        Compiled template = byLanguage.getOrDefault(locale.getLanguage(), byLanguage.get(defaultLocale.getLanguage()));
+        CompiledTemplate body = recipient.id() == null ? template.bodyWithoutId() : template.body();
+        return new RenderedMail(template.subject().render(recipient), body.render(recipient));
+    }
+
+    //Несколько писем одному адресату - одно письмо: тема и вступление из шаблона user-digest,
+    //затем тексты писем в исходном порядке. Одно письмо отрисовывается как обычно.
+    public RenderedMail renderDigest(List<Notification> notifications) {
+        if (notifications.size() == 1) {
+            Notification notification = notifications.getFirst();
+            return render(notification.type(), notification.recipient());
+        }
+        RenderedMail header = render(MailTemplateType.USER_DIGEST, notifications.getFirst().recipient());
+        StringBuilder body = new StringBuilder(header.body());
+        for (Notification notification : notifications) {
+            body.append(DIGEST_SEPARATOR).append(render(notification.type(), notification.recipient()).body());
+        }
+        return new RenderedMail(header.subject(), body.toString());
+    }
+
+    private static Compiled compile(Resource resource, Locale locale, ZoneId zone) {
+        Properties properties = new Properties();
+        try (Reader reader = new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read mail template " + resource.getFilename(), e);
+        }
+        DateTimeFormatter dateFormatter = DateTimeFormatter.ofLocalizedDate(FormatStyle.LONG)
+                .withLocale(locale)
+                .withZone(zone);
+        String name = resource.getFilename();
+        String body = required(properties, "body", name);
+        String bodyWithoutId = body.contains(ID_FIELD) ? required(properties, "body.without-id", name) : body;
+        return new Compiled(
+                CompiledTemplate.compile(required(properties, "subject", name), dateFormatter, name),
+                CompiledTemplate.compile(body, dateFormatter, name),
+                CompiledTemplate.compile(bodyWithoutId, dateFormatter, name)
+        );
+    }
+
+    private static String required(Properties properties, String key, String templateName) {
+        String value = properties.getProperty(key);
+        if (value == null) {
+            throw new IllegalStateException("No " + key + " in mail template " + templateName);
+        }
+        return value;
+    }
+
+    private record Compiled(CompiledTemplate subject, CompiledTemplate body, CompiledTemplate bodyWithoutId) {
+    }
+}
@@ -0,0 +1,6 @@
+package ru.aston.mailservice.template;
+
+
+//Письмо вида type адресату recipient, ещё не отрисованное.
+public record Notification(MailTemplateType type, Recipient recipient) {
+}
@@ -0,0 +1,19 @@
+package ru.aston.mailservice.template;
+
+
+import java.time.Instant;
+import java.util.Locale;
+
+//Адресат письма и поля для подстановки в шаблон: {email}, {name}, {id}, {date}.
+//locale == null - язык mail.templates.default-locale.
+public record Recipient(String email, String name, Integer id, Instant date, Locale locale) {
+
+    //Письмо по одному адресу, без события USERS: имя - сам адрес, дата - момент отправки, номера нет.
+    public static Recipient of(String email) {
+        return of(email, null);
+    }
+
+    public static Recipient of(String email, Locale locale) {
+        return new Recipient(email, email, null, Instant.now(), locale);
+    }
+}
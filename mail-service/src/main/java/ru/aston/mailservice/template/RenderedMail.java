@@ -0,0 +1,5 @@
+package ru.aston.mailservice.template;
+
+
+public record RenderedMail(String subject, String body) {
+}
@@ -8,11 +8,21 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import ru.aston.mailservice.exception.BulkMailValidationException;
+import ru.aston.mailservice.model.BulkMailResult;
+import ru.aston.mailservice.service.BulkMailService;
 import ru.aston.mailservice.service.MailServiceImpl;
+import ru.aston.mailservice.template.MailTemplateType;
+
+import java.util.List;
+import java.util.Locale;
 
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
@@ -21,33 +31,87 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 @DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
 public class MailControllerTest {
 
+    private static final Locale RU = Locale.of("ru");
+    private static final Locale EN = Locale.of("en");
+
     @Autowired
     private MockMvc mockMvc;
 
     @MockitoBean
     private MailServiceImpl mailService;
 
+    @MockitoBean
+    private BulkMailService bulkMailService;
+
     @Test
     public void sendAddEmail_ShouldReturnOk() throws Exception {
         String testEmail = "test@example.com";
 
-        doNothing().when(mailService).sendEmailAboutAdd(testEmail);
+        doNothing().when(mailService).sendEmailAboutAdd(testEmail, RU);
 
         mockMvc.perform(get("/api/mail/sendAdd/{mail}", testEmail))
                 .andExpect(status().isOk());
 
-        verify(mailService).sendEmailAboutAdd(testEmail);
+        verify(mailService).sendEmailAboutAdd(testEmail, RU);
+    }
+
+    @Test
+    public void sendAddEmail_WithAcceptLanguage_ShouldPassLocale() throws Exception {
+        String testEmail = "test@example.com";
+
+        mockMvc.perform(get("/api/mail/sendAdd/{mail}", testEmail)
+                        .header("Accept-Language", "en-US,en;q=0.9"))
+                .andExpect(status().isOk());
+
+        verify(mailService).sendEmailAboutAdd(testEmail, EN);
     }
 
     @Test
     public void sendRemoveEmail_ShouldReturnOk() throws Exception {
         String testEmail = "test@example.com";
 
-        doNothing().when(mailService).sendEmailAboutDelete(testEmail);
+        doNothing().when(mailService).sendEmailAboutDelete(testEmail, RU);
 
         mockMvc.perform(get("/api/mail/sendRemove/{mail}", testEmail))
                 .andExpect(status().isOk());
 
-        verify(mailService).sendEmailAboutDelete(testEmail);
+        verify(mailService).sendEmailAboutDelete(testEmail, RU);
+    }
+
+    @Test
+    public void sendBulk_ShouldReturnResultPerRecipient() throws Exception {
+        when(bulkMailService.sendBulk(MailTemplateType.USER_CREATED, List.of("a@example.com", "b@example.com"), RU))
+                .thenReturn(List.of(
+                        new BulkMailResult("a@example.com", BulkMailResult.Status.SENT, null),
+                        new BulkMailResult("b@example.com", BulkMailResult.Status.FAILED, "550 no such user")));
+
+        mockMvc.perform(post("/api/mail/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"type\":\"USER_CREATED\",\"recipients\":[\"a@example.com\",\"b@example.com\"]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value("SENT"))
+                .andExpect(jsonPath("$[1].status").value("FAILED"));
+    }
+
+    @Test
+    public void sendBulk_WhenNoRecipients_ShouldReturnBadRequest() throws Exception {
+        when(bulkMailService.sendBulk(MailTemplateType.USER_CREATED, List.of(), RU))
+                .thenThrow(new BulkMailValidationException("Mail type and recipients are required"));
+
+        mockMvc.perform(post("/api/mail/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"type\":\"USER_CREATED\",\"recipients\":[]}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void sendAddEmail_WhenServiceFailsWithIllegalArgument_ShouldReturnServerError() throws Exception {
+        String testEmail = "test@example.com";
+
+        doThrow(new IllegalArgumentException("Template rendering failed"))
+                .when(mailService).sendEmailAboutAdd(testEmail, RU);
+
+        mockMvc.perform(get("/api/mail/sendAdd/{mail}", testEmail))
+                .andExpect(status().isInternalServerError());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,68 @@
+package ru.aston.mailservice.kafka;
+
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+class AdaptiveConcurrencyTest {
+
+    private final UsersConsumerEndpoint usersConsumer = mock(UsersConsumerEndpoint.class);
+    private final ConcurrentMessageListenerContainer<?, ?> container = mock(ConcurrentMessageListenerContainer.class);
+    private final AdaptiveConcurrency adaptiveConcurrency = new AdaptiveConcurrency(usersConsumer, 1, 3, 1000);
+
+    @BeforeEach
+    void setUp() {
+        doReturn(container).when(usersConsumer).container();
+        when(container.isRunning()).thenReturn(true);
+    }
+
+    @Test
+    public void adjust_whenLagAboveThreshold_restartsWithOneMoreConsumer() {
+        when(container.getConcurrency()).thenReturn(1);
+        when(usersConsumer.partitionLag()).thenReturn(Map.of("USERS-0", 800L, "USERS-1", 700L));
+
+        adaptiveConcurrency.adjust();
+
+        InOrder restart = inOrder(container);
+        restart.verify(container).stop();
+        restart.verify(container).setConcurrency(2);
+        restart.verify(container).start();
+    }
+
+    @Test
+    public void adjust_whenAtMaxConcurrency_keepsContainerRunning() {
+        when(container.getConcurrency()).thenReturn(3);
+        when(usersConsumer.partitionLag()).thenReturn(Map.of("USERS-0", 5000L));
+
+        adaptiveConcurrency.adjust();
+
+        verify(container, never()).stop();
+    }
+
+    @Test
+    public void adjust_whenLagDrained_returnsTowardsBaseConcurrency() {
+        when(container.getConcurrency()).thenReturn(3);
+        when(usersConsumer.partitionLag()).thenReturn(Map.of("USERS-0", 10L));
+
+        adaptiveConcurrency.adjust();
+
+        verify(container).setConcurrency(2);
+    }
+
+    @Test
+    public void adjust_whenLagUnknown_changesNothing() {
+        when(container.getConcurrency()).thenReturn(3);
+        when(usersConsumer.partitionLag()).thenReturn(Map.of());
+
+        adaptiveConcurrency.adjust();
+
+        verify(container, never()).setConcurrency(anyInt());
+    }
+}
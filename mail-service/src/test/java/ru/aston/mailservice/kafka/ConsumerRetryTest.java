@@ -0,0 +1,122 @@
+package ru.aston.mailservice.kafka;
+
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.KafkaException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.mail.MailSendException;
+import ru.aston.common.kafka.Command;
+import ru.aston.common.kafka.UserEvent;
+import ru.aston.mailservice.service.BulkMailService;
+import ru.aston.mailservice.service.MailDispatcher;
+import ru.aston.mailservice.service.MailServiceImpl;
+import ru.aston.mailservice.template.Recipient;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+@SuppressWarnings("unchecked")
+class ConsumerRetryTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final MailServiceImpl mailService = mock(MailServiceImpl.class);
+    private final KafkaTemplate<String, UserEvent> retryTemplate = mock(KafkaTemplate.class);
+    private final DeadLetterPublishingRecoverer deadLetterRecoverer = mock(DeadLetterPublishingRecoverer.class);
+    private final Acknowledgment acknowledgment = mock(Acknowledgment.class);
+    private final MailDispatcher mailDispatcher = new MailDispatcher(4, meterRegistry);
+    private Consumer consumer;
+
+    @BeforeEach
+    void setUp() {
+        doThrow(new MailSendException("smtp down")).when(mailService).sendEmailAboutAdd(any(Recipient.class));
+        consumer = new Consumer(mailService, mailDispatcher, ObservationRegistry.NOOP, retryTemplate,
+                deadLetterRecoverer, new MailDeduplicator(Duration.ofMinutes(10), 1000, meterRegistry), null, false);
+    }
+
+    @AfterEach
+    void tearDown() {
+        mailDispatcher.destroy();
+    }
+
+    @Test
+    public void consume_whenRetrySendSucceeds_acknowledgesBatch() {
+        when(retryTemplate.send(any(ProducerRecord.class)))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        consumer.consume(List.of(record(0, Command.CREATE, 1)), acknowledgment);
+
+        verify(acknowledgment).acknowledge();
+    }
+
+    @Test
+    public void consume_whenRetrySendThrows_failsBatchFromThatRecord() {
+        when(retryTemplate.send(any(ProducerRecord.class)))
+                .thenThrow(new KafkaException("metadata timeout"));
+        List<ConsumerRecord<String, UserEvent>> records = List.of(
+                record(0, Command.UPDATE, 1), record(1, Command.CREATE, 2));
+
+        BatchListenerFailedException e = assertThrows(BatchListenerFailedException.class,
+                () -> consumer.consume(records, acknowledgment));
+
+        assertEquals(1, e.getIndex());
+        assertInstanceOf(KafkaException.class, e.getCause());
+        verify(acknowledgment, never()).acknowledge();
+    }
+
+    @Test
+    public void consume_whenRetrySendFailsLater_deadLettersOnlyEarlierUnreadableRecords() {
+        when(retryTemplate.send(any(ProducerRecord.class)))
+                .thenReturn(CompletableFuture.failedFuture(new KafkaException("broker down")));
+        ConsumerRecord<String, UserEvent> before = unreadable(0);
+        List<ConsumerRecord<String, UserEvent>> records = List.of(before, record(1, Command.CREATE, 1), unreadable(2));
+
+        BatchListenerFailedException e = assertThrows(BatchListenerFailedException.class,
+                () -> consumer.consume(records, acknowledgment));
+
+        assertEquals(1, e.getIndex());
+        verify(deadLetterRecoverer).accept(eq(before), isNull(), any(Exception.class));
+        verifyNoMoreInteractions(deadLetterRecoverer);
+    }
+
+    @Test
+    public void consume_whenDigestEventHasNoEmail_skipsItAndAcknowledges() {
+        BulkMailService bulkMailService = mock(BulkMailService.class);
+        Consumer digestConsumer = new Consumer(mailService, mailDispatcher, ObservationRegistry.NOOP, retryTemplate,
+                deadLetterRecoverer, new MailDeduplicator(Duration.ofMinutes(10), 1000, meterRegistry),
+                bulkMailService, true);
+        ConsumerRecord<String, UserEvent> noEmail = new ConsumerRecord<>("USERS", 0, 0, "1",
+                new UserEvent(Command.CREATE, 1, null, null, "User", 0, Instant.now()));
+
+        digestConsumer.consume(List.of(noEmail), acknowledgment);
+
+        verify(bulkMailService, never()).digest(any(), any());
+        verifyNoInteractions(retryTemplate);
+        verify(acknowledgment).acknowledge();
+    }
+
+    private static ConsumerRecord<String, UserEvent> record(long offset, Command command, int id) {
+        return new ConsumerRecord<>("USERS", 0, offset, String.valueOf(id),
+                new UserEvent(command, id, null, "user" + id + "@test.tt", "User", offset, Instant.now()));
+    }
+
+    private static ConsumerRecord<String, UserEvent> unreadable(long offset) {
+        return new ConsumerRecord<>("USERS", 0, offset, null, null);
+    }
+}
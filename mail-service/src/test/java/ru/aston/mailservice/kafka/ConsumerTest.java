@@ -1,17 +1,41 @@
 package ru.aston.mailservice.kafka;
 
 
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
 import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.mail.MailSendException;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import ru.aston.common.kafka.Command;
+import ru.aston.common.kafka.UserEvent;
+import ru.aston.common.kafka.UserEventSerializer;
+import ru.aston.mailservice.config.KafkaConsumerConfig;
 import ru.aston.mailservice.service.MailServiceImpl;
+import ru.aston.mailservice.template.Recipient;
 
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.*;
 
 @SpringBootTest
@@ -20,36 +44,89 @@ import static org.mockito.Mockito.*;
 @EmbeddedKafka(partitions = 1, brokerProperties = {"listeners=PLAINTEXT://localhost:0"})
 public class ConsumerTest {
     @Autowired
-    private KafkaTemplate<String, String> kafkaTemplate;
+    private EmbeddedKafkaBroker embeddedKafka;
 
     @MockitoBean
     private MailServiceImpl mailService;
 
+    private KafkaTemplate<String, UserEvent> kafkaTemplate;
+
+    @BeforeEach
+    void setUp() {
+        Map<String, Object> props = KafkaTestUtils.producerProps(embeddedKafka);
+        props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, UserEventSerializer.class);
+        kafkaTemplate = new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(props));
+    }
+
     @Test
     public void whenCreateMessageReceived_thenSendAddEmail() throws Exception {
         String email = "test@example.com";
 
-        kafkaTemplate.send("USERS", "CREATE", email);
+        kafkaTemplate.send("USERS", "1", event(Command.CREATE, email));
 
-        verify(mailService, timeout(5000).times(1)).sendEmailAboutAdd(email);
+        verify(mailService, timeout(5000).times(1)).sendEmailAboutAdd(recipient(email));
     }
 
     @Test
     public void whenRemoveMessageReceived_thenSendDeleteEmail() throws Exception {
         String email = "test@example.com";
 
-        kafkaTemplate.send("USERS", "DELETE", email);
+        kafkaTemplate.send("USERS", "1", event(Command.DELETE, email));
 
-        verify(mailService, timeout(5000).times(1)).sendEmailAboutDelete(email);
+        verify(mailService, timeout(5000).times(1)).sendEmailAboutDelete(recipient(email));
     }
 
     @Test
-    public void whenUnknownMessageReceived_thenSendDeleteEmail() throws Exception {
+    public void whenUpdateMessageReceived_thenSendNoEmail() throws Exception {
         String email = "test@example.com";
 
-        kafkaTemplate.send("USERS", "unk", email);
+        kafkaTemplate.send("USERS", "1", event(Command.UPDATE, email));
+
+        verify(mailService, after(5000).never()).sendEmailAboutDelete(any(Recipient.class));
+        verify(mailService, after(5000).never()).sendEmailAboutAdd(any(Recipient.class));
+    }
+
+    @Test
+    public void whenSendFails_thenMailIsRetriedFromRetryTopic() throws Exception {
+        String email = "retry@example.com";
+        doThrow(new MailSendException("smtp unavailable")).doNothing().when(mailService).sendEmailAboutAdd(recipient(email));
+
+        kafkaTemplate.send("USERS", "1", event(Command.CREATE, email));
+
+        verify(mailService, timeout(15000).times(2)).sendEmailAboutAdd(recipient(email));
+    }
+
+    @Test
+    public void whenRecordUnreadable_thenItGoesToDltAndNextMailIsSent() throws Exception {
+        String email = "after-poison@example.com";
+        Map<String, Object> props = KafkaTestUtils.producerProps(embeddedKafka);
+        props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class);
+        KafkaTemplate<String, byte[]> rawTemplate = new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(props));
+        byte[] poison = {1, 42, 0};
+
+        rawTemplate.send("USERS", "1", poison).get();
+        kafkaTemplate.send("USERS", "1", event(Command.CREATE, email));
+
+        verify(mailService, timeout(5000).times(1)).sendEmailAboutAdd(recipient(email));
+        Map<String, Object> consumerProps = KafkaTestUtils.consumerProps("dlt-check", "false", embeddedKafka);
+        consumerProps.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        try (org.apache.kafka.clients.consumer.Consumer<String, byte[]> dltConsumer = new DefaultKafkaConsumerFactory<>(
+                consumerProps, new StringDeserializer(), new ByteArrayDeserializer()).createConsumer()) {
+            dltConsumer.subscribe(List.of(KafkaConsumerConfig.DEAD_LETTER_TOPIC));
+            ConsumerRecord<String, byte[]> deadLetter = KafkaTestUtils.getSingleRecord(dltConsumer,
+                    KafkaConsumerConfig.DEAD_LETTER_TOPIC);
+            assertArrayEquals(poison, deadLetter.value());
+        }
+    }
+
+    private static Recipient recipient(String email) {
+        return argThat(recipient -> email.equals(recipient.email()) && "Test".equals(recipient.name()));
+    }
 
-        verify(mailService, after(5000).never()).sendEmailAboutDelete(email);
-        verify(mailService, after(5000).never()).sendEmailAboutAdd(email);
+    //Своя версия у каждого события: иначе MailDeduplicator сочтёт события разных тестов повторами.
+    private UserEvent event(Command command, String email) {
+        return new UserEvent(command, 1, null, email, "Test", System.nanoTime(), Instant.now());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,123 @@
+package ru.aston.mailservice.kafka;
+
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.Test;
+import ru.aston.common.kafka.Command;
+import ru.aston.common.kafka.UserEvent;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MailDeduplicatorTest {
+    private static final Instant WRITTEN_AT = Instant.parse("2025-01-01T12:00:00Z");
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final MailDeduplicator mailDeduplicator = new MailDeduplicator(Duration.ofMinutes(10), 1000, meterRegistry);
+
+    @Test
+    public void coalesce_whenCreateFollowedByDelete_sendsNothingForUser() {
+        ConsumerRecord<String, UserEvent> other = record(Command.CREATE, 2, "other@test.tt", 1L);
+
+        List<ConsumerRecord<String, UserEvent>> selected = mailDeduplicator.coalesce(List.of(
+                record(Command.CREATE, 1, "user@test.tt", 1L),
+                other,
+                record(Command.DELETE, 1, "USER@test.tt", 2L)));
+
+        assertEquals(List.of(other), selected);
+        assertEquals(2, meterRegistry.get("mail.dedup.skipped").tag("reason", "coalesced").counter().count());
+    }
+
+    @Test
+    public void coalesce_whenOtherUserWithSameAddressDeleted_sendsBoth() {
+        List<ConsumerRecord<String, UserEvent>> records = List.of(
+                record(Command.CREATE, 1, "user@test.tt", 1L),
+                record(Command.DELETE, 2, "user@test.tt", 1L));
+
+        assertEquals(records, mailDeduplicator.coalesce(records));
+    }
+
+    @Test
+    public void coalesce_whenCreateAndDeleteInDifferentPartitions_sendsBoth() {
+        List<ConsumerRecord<String, UserEvent>> records = List.of(
+                record(0, Command.CREATE, 1, "user@test.tt", 1L),
+                record(1, Command.DELETE, 1, "user@test.tt", 2L));
+
+        assertEquals(records, mailDeduplicator.coalesce(records));
+    }
+
+    @Test
+    public void coalesce_whenDeleteFollowedByCreate_sendsBoth() {
+        List<ConsumerRecord<String, UserEvent>> records = List.of(
+                record(Command.DELETE, 1, "user@test.tt", 1L),
+                record(Command.CREATE, 1, "user@test.tt", 2L));
+
+        assertEquals(records, mailDeduplicator.coalesce(records));
+    }
+
+    @Test
+    public void coalesce_whenSameEventRedelivered_keepsFirst() {
+        ConsumerRecord<String, UserEvent> first = record(Command.CREATE, 1, "user@test.tt", 1L);
+
+        List<ConsumerRecord<String, UserEvent>> selected = mailDeduplicator.coalesce(List.of(
+                first, record(Command.CREATE, 1, "user@test.tt", 1L)));
+
+        assertEquals(List.of(first), selected);
+    }
+
+    @Test
+    public void tryMarkSent_onlyOnceForSameIdCommandAndVersion() {
+        assertTrue(mailDeduplicator.tryMarkSent(event(Command.CREATE, 1, "user@test.tt", 1L)));
+
+        assertFalse(mailDeduplicator.tryMarkSent(event(Command.CREATE, 1, "user@test.tt", 1L)));
+        assertTrue(mailDeduplicator.tryMarkSent(event(Command.CREATE, 1, "user@test.tt", 2L)));
+        assertTrue(mailDeduplicator.tryMarkSent(event(Command.DELETE, 1, "user@test.tt", 1L)));
+    }
+
+    @Test
+    public void tryMarkSent_whenUserRecreatedWithSameVersion_marksAgain() {
+        assertTrue(mailDeduplicator.tryMarkSent(event(Command.CREATE, 1, "user@test.tt", 0L)));
+
+        assertTrue(mailDeduplicator.tryMarkSent(
+                new UserEvent(Command.CREATE, 1, null, "user@test.tt", "User", 0L, WRITTEN_AT.plusSeconds(1))));
+    }
+
+    @Test
+    public void tryMarkSent_whenCalledConcurrently_marksOnce() {
+        UserEvent event = event(Command.CREATE, 1, "user@test.tt", 1L);
+
+        long marked = IntStream.range(0, 100).parallel()
+                .filter(i -> mailDeduplicator.tryMarkSent(event))
+                .count();
+
+        assertEquals(1, marked);
+    }
+
+    @Test
+    public void release_allowsEventToBeSentAgain() {
+        UserEvent event = event(Command.CREATE, 1, "user@test.tt", 1L);
+        mailDeduplicator.tryMarkSent(event);
+
+        mailDeduplicator.release(event);
+
+        assertTrue(mailDeduplicator.tryMarkSent(event));
+    }
+
+    private static ConsumerRecord<String, UserEvent> record(Command command, int id, String email, long version) {
+        return record(0, command, id, email, version);
+    }
+
+    private static ConsumerRecord<String, UserEvent> record(int partition, Command command, int id, String email,
+                                                            long version) {
+        return new ConsumerRecord<>("USERS", partition, version, String.valueOf(id), event(command, id, email, version));
+    }
+
+    private static UserEvent event(Command command, int id, String email, long version) {
+        return new UserEvent(command, id, null, email, "User", version, WRITTEN_AT);
+    }
+}
@@ -0,0 +1,84 @@
+package ru.aston.mailservice.service;
+
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import ru.aston.mailservice.exception.BulkMailValidationException;
+import ru.aston.mailservice.model.BulkMailResult;
+import ru.aston.mailservice.template.MailTemplateType;
+import ru.aston.mailservice.template.MailTemplates;
+
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BulkMailServiceTest {
+
+    private static final String BAD_MAILBOX = "bounce@test.tt";
+
+    private final List<Integer> chunkSizes = new CopyOnWriteArrayList<>();
+    private final MailDispatcher mailDispatcher = new MailDispatcher(4, new SimpleMeterRegistry());
+    private final BulkMailService bulkMailService = new BulkMailService(
+            new RecordingMailSender(),
+            new MailTemplates(List.of(Locale.of("ru")), Locale.of("ru"), ZoneId.of("UTC")),
+            mailDispatcher,
+            "noreply@test.tt",
+            10,
+            1000);
+
+    @AfterEach
+    void tearDown() {
+        mailDispatcher.destroy();
+    }
+
+    @Test
+    public void sendBulk_sendsInChunksAndReportsEachRecipient() {
+        List<String> emails = IntStream.range(0, 25).mapToObj(i -> "user" + i + "@test.tt")
+                .collect(Collectors.toCollection(CopyOnWriteArrayList::new));
+        emails.add(BAD_MAILBOX);
+        emails.add("not an address");
+        emails.add("user0@test.tt");
+
+        Map<String, BulkMailResult> results = bulkMailService.sendBulk(MailTemplateType.USER_CREATED, emails).stream()
+                .collect(Collectors.toMap(BulkMailResult::email, result -> result));
+
+        assertEquals(27, results.size());
+        assertEquals(BulkMailResult.Status.SENT, results.get("user0@test.tt").status());
+        assertEquals(BulkMailResult.Status.FAILED, results.get(BAD_MAILBOX).status());
+        assertEquals(BulkMailResult.Status.INVALID, results.get("not an address").status());
+        assertEquals(List.of(6, 10, 10), chunkSizes.stream().sorted().toList());
+    }
+
+    @Test
+    public void sendBulk_whenTooManyRecipients_fails() {
+        List<String> emails = IntStream.range(0, 1001).mapToObj(i -> "user" + i + "@test.tt").toList();
+
+        assertThrows(BulkMailValidationException.class,
+                () -> bulkMailService.sendBulk(MailTemplateType.USER_CREATED, emails));
+    }
+
+    //Как PooledJavaMailSender: неотправленные письма - в MailSendException, остальные части вызова уходят.
+    private class RecordingMailSender extends JavaMailSenderImpl {
+        @Override
+        public void send(SimpleMailMessage... simpleMessages) {
+            chunkSizes.add(simpleMessages.length);
+            Map<Object, Exception> failed = Arrays.stream(simpleMessages)
+                    .filter(message -> BAD_MAILBOX.equals(message.getTo()[0]))
+                    .collect(Collectors.toMap(message -> message, message -> new IllegalStateException("550 no such user")));
+            if (!failed.isEmpty()) {
+                throw new MailSendException(failed);
+            }
+        }
+    }
+}
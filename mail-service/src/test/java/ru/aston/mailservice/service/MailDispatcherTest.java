@@ -0,0 +1,62 @@
+package ru.aston.mailservice.service;
+
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MailDispatcherTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final MailDispatcher mailDispatcher = new MailDispatcher(4, meterRegistry);
+
+    @AfterEach
+    void tearDown() {
+        mailDispatcher.destroy();
+    }
+
+    @Test
+    public void submit_neverExceedsConcurrencyLimit() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+
+        List<CompletableFuture<Void>> sends = IntStream.range(0, 50)
+                .mapToObj(i -> mailDispatcher.submit(() -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    sleep(10);
+                    running.decrementAndGet();
+                }))
+                .toList();
+        CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new)).join();
+
+        assertTrue(maxRunning.get() <= 4);
+        assertTrue(maxRunning.get() > 1);
+        assertEquals(50, mailDispatcher.processingTime().count());
+        assertEquals(0, mailDispatcher.inFlight());
+    }
+
+    @Test
+    public void submit_whenTaskFails_completesExceptionally() {
+        CompletableFuture<Void> send = mailDispatcher.submit(() -> {
+            throw new IllegalStateException("smtp unavailable");
+        });
+
+        assertThrows(CompletionException.class, send::join);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
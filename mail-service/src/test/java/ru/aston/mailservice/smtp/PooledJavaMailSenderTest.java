@@ -0,0 +1,162 @@
+package ru.aston.mailservice.smtp;
+
+
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.ServerSetup;
+import jakarta.mail.Address;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PooledJavaMailSenderTest {
+    private static final int SMTP_PORT = 3025;
+
+    private GreenMail greenMail;
+    private CountingMailSender mailSender;
+
+    @BeforeEach
+    void setUp() {
+        greenMail = new GreenMail(new ServerSetup(SMTP_PORT, null, ServerSetup.PROTOCOL_SMTP));
+        greenMail.start();
+        mailSender = new CountingMailSender(2, Duration.ofSeconds(30), 3);
+        mailSender.setHost("localhost");
+        mailSender.setPort(SMTP_PORT);
+    }
+
+    @AfterEach
+    void tearDown() {
+        mailSender.destroy();
+        greenMail.stop();
+    }
+
+    @Test
+    public void send_reusesConnectionAcrossCalls() {
+        mailSender.send(message("one@example.com"));
+        mailSender.send(message("two@example.com"));
+
+        assertEquals(2, greenMail.getReceivedMessages().length);
+        assertEquals(1, mailSender.connections.get());
+    }
+
+    @Test
+    public void send_whenMaxMessagesReached_opensNewConnection() {
+        mailSender.send(message("one@example.com"), message("two@example.com"), message("three@example.com"),
+                message("four@example.com"));
+
+        assertEquals(4, greenMail.getReceivedMessages().length);
+        assertEquals(2, mailSender.connections.get());
+    }
+
+    @Test
+    public void send_whenIdleTimeoutExpired_opensNewConnection() {
+        mailSender.destroy();
+        mailSender = new CountingMailSender(2, Duration.ZERO, 100);
+        mailSender.setHost("localhost");
+        mailSender.setPort(SMTP_PORT);
+
+        mailSender.send(message("one@example.com"));
+        mailSender.send(message("two@example.com"));
+
+        assertEquals(2, mailSender.connections.get());
+    }
+
+    @Test
+    public void send_whenServerUnavailable_reportsEveryMessage() {
+        greenMail.stop();
+
+        MailSendException exception = assertThrows(MailSendException.class,
+                () -> mailSender.send(message("one@example.com"), message("two@example.com")));
+
+        assertEquals(2, exception.getFailedMessages().size());
+    }
+
+    @Test
+    public void send_whenConnectionDrops_sendsRestOnNewConnection() {
+        mailSender.dropFirstConnection = true;
+
+        MailSendException exception = assertThrows(MailSendException.class, () -> mailSender.send(
+                message("one@example.com"), message("two@example.com"), message("three@example.com")));
+
+        assertEquals(1, exception.getFailedMessages().size());
+        assertEquals(2, greenMail.getReceivedMessages().length);
+        assertEquals(2, mailSender.connections.get());
+    }
+
+    @Test
+    public void send_whenReconnectFails_reportsEarlierFailuresToo() {
+        mailSender.dropFirstConnection = true;
+        mailSender.failReconnect = true;
+
+        MailSendException exception = assertThrows(MailSendException.class, () -> mailSender.send(
+                message("one@example.com"), message("two@example.com"), message("three@example.com")));
+
+        assertEquals(3, exception.getFailedMessages().size());
+        assertEquals(0, greenMail.getReceivedMessages().length);
+    }
+
+    private SimpleMailMessage message(String to) {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setFrom("test@example.com");
+        message.setTo(to);
+        message.setSubject("Тема");
+        message.setText("Текст");
+        return message;
+    }
+
+    private static class CountingMailSender extends PooledJavaMailSender {
+        private final AtomicInteger connections = new AtomicInteger();
+        private boolean dropFirstConnection;
+        private boolean failReconnect;
+
+        private CountingMailSender(int poolSize, Duration idleTimeout, int maxMessagesPerConnection) {
+            super(poolSize, idleTimeout, maxMessagesPerConnection);
+        }
+
+        @Override
+        protected Transport connectTransport() throws MessagingException {
+            int connection = connections.incrementAndGet();
+            if (connection > 1 && failReconnect) {
+                throw new MessagingException("Connection refused");
+            }
+            Transport transport = super.connectTransport();
+            return connection == 1 && dropFirstConnection ? new DroppingTransport(getSession(), transport) : transport;
+        }
+    }
+
+    //Соединение обрывается на первом письме: письмо не отправлено, транспорт отключён.
+    private static class DroppingTransport extends Transport {
+        private final Transport delegate;
+
+        private DroppingTransport(Session session, Transport delegate) {
+            super(session, null);
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void sendMessage(Message message, Address[] addresses) throws MessagingException {
+            delegate.close();
+            throw new MessagingException("Connection reset");
+        }
+
+        @Override
+        public boolean isConnected() {
+            return delegate.isConnected();
+        }
+
+        @Override
+        public void close() throws MessagingException {
+            delegate.close();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package ru.aston.mailservice.template;
+
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MailTemplatesTest {
+
+    private static final Locale RU = Locale.of("ru");
+    private static final Locale EN = Locale.of("en");
+    private static final Instant DATE = Instant.parse("2025-03-01T10:00:00Z");
+
+    private final MailTemplates mailTemplates = new MailTemplates(List.of(RU, EN), RU, ZoneId.of("UTC"));
+
+    @Test
+    public void render_substitutesRecipientFields() {
+        RenderedMail mail = mailTemplates.render(MailTemplateType.USER_CREATED,
+                new Recipient("user@test.tt", "Иван", 42, DATE, null));
+
+        assertEquals("Создание", mail.subject());
+        assertTrue(mail.body().startsWith("Здравствуйте, Иван!"));
+        assertTrue(mail.body().contains("Номер пользователя: 42."));
+        assertTrue(mail.body().contains(DateTimeFormatter.ofPattern("d MMMM yyyy", RU).format(DATE.atZone(ZoneId.of("UTC")))));
+        assertFalse(mail.body().contains("{"));
+    }
+
+    @Test
+    public void render_whenNoId_omitsUserNumber() {
+        RenderedMail ru = mailTemplates.render(MailTemplateType.USER_CREATED, Recipient.of("user@test.tt"));
+        RenderedMail en = mailTemplates.render(MailTemplateType.USER_CREATED, Recipient.of("user@test.tt", EN));
+
+        assertTrue(ru.body().startsWith("Здравствуйте, user@test.tt!"));
+        assertFalse(ru.body().contains("Номер пользователя"));
+        assertTrue(en.body().startsWith("Hello, user@test.tt!"));
+        assertFalse(en.body().contains("User number"));
+    }
+
+    @Test
+    public void render_usesRecipientLocale() {
+        RenderedMail mail = mailTemplates.render(MailTemplateType.USER_DELETED,
+                new Recipient("user@test.tt", "John", 42, DATE, Locale.forLanguageTag("en-GB")));
+
+        assertEquals("Account deleted", mail.subject());
+        assertTrue(mail.body().startsWith("Hello, John!"));
+    }
+
+    @Test
+    public void render_whenNoTemplateForLocale_usesDefaultLocale() {
+        RenderedMail mail = mailTemplates.render(MailTemplateType.USER_DELETED,
+                new Recipient("user@test.tt", "Hans", 42, DATE, Locale.GERMAN));
+
+        assertEquals("Удаление", mail.subject());
+    }
+
+    @Test
+    public void renderDigest_joinsMailsOfOneRecipient() {
+        Recipient recipient = new Recipient("user@test.tt", "Иван", 42, DATE, null);
+
+        RenderedMail mail = mailTemplates.renderDigest(List.of(
+                new Notification(MailTemplateType.USER_CREATED, recipient),
+                new Notification(MailTemplateType.USER_DELETED, recipient)));
+
+        assertEquals("Изменения аккаунта", mail.subject());
+        assertTrue(mail.body().contains("успешно создан"));
+        assertTrue(mail.body().contains("был удалён"));
+    }
+
+    @Test
+    public void new_whenNoTemplateForDefaultLocale_fails() {
+        assertThrows(IllegalStateException.class,
+                () -> new MailTemplates(List.of(EN), Locale.GERMAN, ZoneId.of("UTC")));
+    }
+
+    @Test
+    public void compile_whenUnknownField_fails() {
+        assertThrows(IllegalStateException.class,
+                () -> CompiledTemplate.compile("Hello, {surname}!", DateTimeFormatter.ISO_INSTANT, "test"));
+    }
+}
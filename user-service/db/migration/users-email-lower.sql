@@ -0,0 +1,25 @@
+-- Разовая миграция: уникальность users.email без учёта регистра.
+-- Приложение её не выполняет, запуск вручную после проверки: psql -v ON_ERROR_STOP=1 -f users-email-lower.sql
+-- Данные не изменяются и не удаляются. Если адреса совпадают после lower(), скрипт перечисляет такие записи
+-- и останавливается до создания индекса; конфликты разбираются вручную через API, с событиями USERS.
+DO $$
+DECLARE
+    conflict record;
+    conflicts integer := 0;
+BEGIN
+    FOR conflict IN
+        SELECT lower(email) AS email, array_agg(id ORDER BY id) AS ids
+        FROM users
+        GROUP BY lower(email)
+        HAVING count(*) > 1
+    LOOP
+        conflicts := conflicts + 1;
+        RAISE WARNING 'users: email % у записей %', conflict.email, conflict.ids;
+    END LOOP;
+    IF conflicts > 0 THEN
+        RAISE EXCEPTION 'users: % адресов совпадают без учёта регистра, индекс не создан', conflicts;
+    END IF;
+END
+$$;
+
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS users_email_lower_key ON users (lower(email));
@@ -0,0 +1,6 @@
+-- Разовая миграция: индексы под поиск по началу имени и почты (UserSpecifications, LIKE 'prefix%').
+-- Приложение её не выполняет, запуск вручную: psql -v ON_ERROR_STOP=1 -f users-prefix-search.sql
+-- text_pattern_ops сравнивает строки побайтно, поэтому индекс обслуживает LIKE с префиксом при любой collation
+-- базы. Сортировку по имени по-прежнему обслуживает users_name_idx.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS users_name_pattern_idx ON users (name text_pattern_ops);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS users_email_pattern_idx ON users (lower(email) text_pattern_ops);
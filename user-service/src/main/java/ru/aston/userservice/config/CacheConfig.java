@@ -0,0 +1,31 @@
+package ru.aston.userservice.config;
+
+
+import org.springframework.boot.autoconfigure.cache.CacheProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+
+//Кэш Caffeine из настроек spring.cache, обёрнутый в TransactionAwareCacheManagerProxy: evict и put внутри
+//транзакции выполняются после коммита, иначе параллельное чтение успеет вернуть в кэш строку до изменения.
+@EnableCaching
+@Configuration
+@EnableConfigurationProperties(CacheProperties.class)
+public class CacheConfig {
+    public static final String USERS_CACHE = "users";
+
+    @Bean
+    public CacheManager cacheManager(CacheProperties properties) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        if (properties.getCaffeine().getSpec() != null) {
+            cacheManager.setCacheSpecification(properties.getCaffeine().getSpec());
+        }
+        cacheManager.setCacheNames(properties.getCacheNames());
+        return new TransactionAwareCacheManagerProxy(cacheManager);
+    }
+}
@@ -0,0 +1,89 @@
+package ru.aston.userservice.config;
+
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.boot.ssl.SslBundles;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.MicrometerConsumerListener;
+import org.springframework.kafka.core.MicrometerProducerListener;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
+import ru.aston.common.kafka.UserEvent;
+import ru.aston.common.kafka.UserEventDeserializer;
+import ru.aston.common.kafka.UserEventSerializer;
+
+import java.util.Map;
+
+
+//Сериализаторы USERS задаются в коде, чтобы их не переопределяли настройки из Config Server.
+//Фабрики создаются вручную, поэтому метрики клиентов Kafka (kafka.producer.*, kafka.consumer.*)
+//и наблюдения отправки и приёма (спаны, заголовок traceparent) подключаются здесь.
+@Configuration
+public class KafkaConfig {
+    public static final String USER_EVENT_LISTENER_FACTORY = "userEventListenerContainerFactory";
+
+    //Идемпотентная отправка включена всегда: повтор после сбоя не создаёт дублей и не меняет порядок в партиции.
+    //Режим high-throughput копит записи до linger-ms/batch-size и сжимает пачки.
+    @Bean
+    public ProducerFactory<String, UserEvent> producerFactory(
+            KafkaProperties properties,
+            ObjectProvider<SslBundles> sslBundles,
+            @Value("${users.kafka.producer.high-throughput:true}") boolean highThroughput,
+            @Value("${users.kafka.producer.linger-ms:20}") int lingerMs,
+            @Value("${users.kafka.producer.batch-size:131072}") int batchSize,
+            @Value("${users.kafka.producer.compression:lz4}") String compression,
+            MeterRegistry meterRegistry
+    ) {
+        Map<String, Object> config = properties.buildProducerProperties(sslBundles.getIfAvailable());
+        config.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        config.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, UserEventSerializer.class);
+        config.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        config.put(ProducerConfig.ACKS_CONFIG, "all");
+        config.put(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, 5);
+        if (highThroughput) {
+            config.put(ProducerConfig.LINGER_MS_CONFIG, lingerMs);
+            config.put(ProducerConfig.BATCH_SIZE_CONFIG, batchSize);
+            config.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, compression);
+        }
+        DefaultKafkaProducerFactory<String, UserEvent> factory = new DefaultKafkaProducerFactory<>(config);
+        factory.addListener(new MicrometerProducerListener<>(meterRegistry));
+        return factory;
+    }
+
+    @Bean
+    public KafkaTemplate<String, UserEvent> kafkaTemplate(ProducerFactory<String, UserEvent> producerFactory) {
+        KafkaTemplate<String, UserEvent> template = new KafkaTemplate<>(producerFactory);
+        template.setObservationEnabled(true);
+        return template;
+    }
+
+    @Bean(USER_EVENT_LISTENER_FACTORY)
+    public ConcurrentKafkaListenerContainerFactory<String, UserEvent> userEventListenerContainerFactory(
+            KafkaProperties properties, ObjectProvider<SslBundles> sslBundles, MeterRegistry meterRegistry
+    ) {
+        Map<String, Object> config = properties.buildConsumerProperties(sslBundles.getIfAvailable());
+        config.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        //ошибка чтения не повторяется на каждом poll: DefaultErrorHandler контейнера пишет её в лог и пропускает запись;
+        //в USERS-dlt такие записи передаёт mail-service
+        config.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ErrorHandlingDeserializer.class);
+        config.put(ErrorHandlingDeserializer.VALUE_DESERIALIZER_CLASS, UserEventDeserializer.class);
+        ConcurrentKafkaListenerContainerFactory<String, UserEvent> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        DefaultKafkaConsumerFactory<String, UserEvent> consumerFactory = new DefaultKafkaConsumerFactory<>(config);
+        consumerFactory.addListener(new MicrometerConsumerListener<>(meterRegistry));
+        factory.setConsumerFactory(consumerFactory);
+        factory.getContainerProperties().setObservationEnabled(true);
+        return factory;
+    }
+}
@@ -0,0 +1,11 @@
+package ru.aston.userservice.config;
+
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+
+@EnableScheduling
+@Configuration
+public class SchedulingConfig {
+}
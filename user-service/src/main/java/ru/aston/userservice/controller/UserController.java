@@ -1,23 +1,46 @@
 package ru.aston.userservice.controller;
 
 
-import java.time.LocalDateTime;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
-import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import ru.aston.userservice.model.BatchItemResult;
+import ru.aston.userservice.model.UserCursor;
 import ru.aston.userservice.model.UserDTO;
+import ru.aston.userservice.model.UserFilter;
+import ru.aston.userservice.model.UserSort;
+import ru.aston.userservice.service.UserBatchService;
 import ru.aston.userservice.service.UserService;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import jakarta.persistence.EntityNotFoundException;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Email;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Positive;
 import jakarta.validation.constraints.PositiveOrZero;
+import jakarta.validation.constraints.Size;
+import org.springdoc.core.annotations.ParameterObject;
+import org.springframework.data.domain.Sort;
 import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
 import io.swagger.v3.oas.annotations.Operation;
@@ -56,46 +79,97 @@ import org.springframework.hateoas.EntityModel;
 @RestController
 public class UserController {
     private static final Logger logger = LoggerFactory.getLogger(UserController.class);
+    private static final String DEFAULT_PAGE_SIZE = "50";
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final String NDJSON_VALUE = "application/x-ndjson";
+    private static final int MAX_BATCH_SIZE = 10_000;
+    private static final int EXAMPLE_ID = 1;
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
 
     private final UserService userService;
+    private final UserBatchService userBatchService;
+    private final ObjectWriter userWriter;
+    private final UserLinks userLinks;
 
-    public UserController(UserService userService) {
+    public UserController(UserService userService, UserBatchService userBatchService, ObjectMapper objectMapper) {
         this.userService = userService;
+        this.userBatchService = userBatchService;
+        this.userWriter = objectMapper.writerFor(UserDTO.class).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        this.userLinks = new UserLinks();
     }
 
 
     @Operation(summary = "Чтение.", description = "Получить пользователя из таблицы Users.")
     @GetMapping("read/id/{id}")
     public ResponseEntity<EntityModel<UserDTO>> getUserById(
-            @PositiveOrZero @PathVariable("id") @Parameter(description = "Идентификатор пользователя") Integer id
+            @PositiveOrZero @PathVariable("id") @Parameter(description = "Идентификатор пользователя") Integer id,
+            WebRequest request
     ) {
         logger.info("getUserById() id = {}", id);
 
         Optional<UserDTO> optionalUser = userService.getUserById(id);
-        EntityModel<UserDTO> model = toEntityModel(optionalUser.get());
-        return optionalUser.isPresent() ? ResponseEntity.ok(model) : ResponseEntity.notFound().build();
+        if (optionalUser.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        String eTag = UserETags.of(optionalUser.get());
+        if (request.checkNotModified(eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+        }
+        return ResponseEntity.ok().eTag(eTag).body(toEntityModel(optionalUser.get()));
+    }
+
+
+    @Operation(summary = "Чтение по email.",
+            description = "Получить пользователя из таблицы Users по email без учёта регистра.")
+    @GetMapping("read/email/{email}")
+    public ResponseEntity<EntityModel<UserDTO>> getUserByEmail(
+            @Email @PathVariable("email") @Parameter(description = "Почта пользователя") String email,
+            WebRequest request
+    ) {
+        logger.info("getUserByEmail() email = {}", email);
+
+        UserDTO user = userService.getUserByEmail(email)
+                .orElseThrow(() -> new EntityNotFoundException("User not found with email: " + email));
+        String eTag = UserETags.of(user);
+        if (request.checkNotModified(eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+        }
+        return ResponseEntity.ok().eTag(eTag).body(toEntityModel(user));
     }
 
 
-    @Operation(summary = "Добавление.", description = "Добавить пользователя в таблицу Users.")
+    @Operation(summary = "Добавление.", description = "Добавить пользователя в таблицу Users. "
+            + "Повтор запроса с тем же Idempotency-Key или с теми же данными возвращает уже созданного пользователя, "
+            + "пользователь с тем же id или email и другими данными - 409, повтор по ключу после удаления "
+            + "созданного пользователя - 410.")
     @PutMapping("create")
-    public ResponseEntity<EntityModel<UserDTO>> createUser(@Valid @RequestBody UserDTO userDTO) {
-        logger.info("createUser() UserDTO  = {}", userDTO);
+    public ResponseEntity<EntityModel<UserDTO>> createUser(
+            @Size(max = MAX_IDEMPOTENCY_KEY_LENGTH) @RequestHeader(value = IDEMPOTENCY_KEY, required = false)
+            @Parameter(description = "Ключ идемпотентности, уникальный для каждого нового пользователя") String idempotencyKey,
+            @Valid @RequestBody UserDTO userDTO
+    ) {
+        logger.info("createUser() idempotencyKey = {}, UserDTO  = {}", idempotencyKey, userDTO);
 
-        UserDTO user = userService.createUser(userDTO).get();
+        UserDTO user = userService.createUser(userDTO, idempotencyKey).get();
         return ResponseEntity.ok(toEntityModel(user));
     }
 
 
-    @Operation(summary = "Обновление.", description = "Обновить пользователя в таблице Users.")
+    @Operation(summary = "Обновление.", description = "Обновить пользователя в таблице Users. "
+            + "С заголовком If-Match обновление выполняется, только если ETag пользователя не изменился, иначе 412.")
     @PutMapping("update/old-id/{id}")
     public ResponseEntity<EntityModel<Map<String, Boolean>>> updateUser(
             @PositiveOrZero @PathVariable("id") @Parameter(description = "Идентификатор пользователя") Integer id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false)
+            @Parameter(description = "ETag из ответа read/id/{id}") String ifMatch,
             @Valid @RequestBody UserDTO userDTO
     ) {
-        logger.info("updateUser() id = {}, userDTO = {}", id, userDTO);
+        logger.info("updateUser() id = {}, ifMatch = {}, userDTO = {}", id, ifMatch, userDTO);
 
-        boolean isUpdate = userService.updateUser(userDTO, id);
+        //Версию проверяет сам update (version = :expectedVersion): если строка не обновлена, ответ 412.
+        Long expectedVersion = UserETags.versionOf(ifMatch);
+        boolean isUpdate = userService.updateUser(userDTO, id, expectedVersion);
         EntityModel<Map<String, Boolean>> model = toEntityModel(isUpdate);
         return ResponseEntity.ok(model);
     }
@@ -114,38 +188,167 @@ public class UserController {
     }
 
 
-    @Operation(summary = "Прочитать всех.", description = "Получить список всех пользователей из таблицы Users.")
+    @Operation(summary = "Прочитать всех.",
+            description = "Получить первую страницу пользователей из таблицы Users (size, по умолчанию "
+                    + DEFAULT_PAGE_SIZE + "). Следующие страницы - по ссылке next (findAll/page), "
+                    + "вся таблица - findAll/stream.")
     @GetMapping("findAll")
-    public ResponseEntity<CollectionModel<EntityModel<UserDTO>>> findAllUsers() {
-        logger.info("findAll()");
+    public ResponseEntity<CollectionModel<EntityModel<UserDTO>>> findAllUsers(
+            @RequestParam(value = "links", defaultValue = "true")
+            @Parameter(description = "Добавлять ссылки к каждому пользователю") Boolean withLinks,
+            @Positive @Max(MAX_PAGE_SIZE) @RequestParam(value = "size", defaultValue = DEFAULT_PAGE_SIZE)
+            @Parameter(description = "Размер страницы") Integer size,
+            WebRequest request
+    ) {
+        logger.info("findAll() withLinks = {}, size = {}", withLinks, size);
 
-        List<UserDTO> users = userService.findAllUsers();
-        List<EntityModel<UserDTO>> usersModel = users.stream()
-                .map(user -> toEntityModel(user))
-                .toList();
-        CollectionModel<EntityModel<UserDTO>> models = CollectionModel.of(usersModel);
+        List<UserDTO> users = userService.findUsersAfter(-1, size);
+        String eTag = UserETags.of(users);
+        if (request.checkNotModified(eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+        }
+        CollectionModel<EntityModel<UserDTO>> models = CollectionModel.of(toEntityModels(users, withLinks));
+        if (users.size() == size) {
+            Integer lastId = users.get(users.size() - 1).id();
+            models.add(linkTo(methodOn(UserController.class).findUsersPage(lastId, size, withLinks))
+                    .withRel(IanaLinkRelations.NEXT));
+        }
+        return ResponseEntity.ok().eTag(eTag).body(models);
+    }
+
+
+    @Operation(summary = "Прочитать страницу.",
+            description = "Получить страницу пользователей с id больше afterId (keyset-пагинация по id).")
+    @GetMapping("findAll/page")
+    public ResponseEntity<CollectionModel<EntityModel<UserDTO>>> findUsersPage(
+            @Min(-1) @RequestParam(value = "afterId", defaultValue = "-1")
+            @Parameter(description = "Идентификатор последнего пользователя предыдущей страницы") Integer afterId,
+            @Positive @Max(MAX_PAGE_SIZE) @RequestParam(value = "size", defaultValue = DEFAULT_PAGE_SIZE)
+            @Parameter(description = "Размер страницы") Integer size,
+            @RequestParam(value = "links", defaultValue = "true")
+            @Parameter(description = "Добавлять ссылки к каждому пользователю") Boolean withLinks
+    ) {
+        logger.info("findUsersPage() afterId = {}, size = {}, withLinks = {}", afterId, size, withLinks);
+
+        List<EntityModel<UserDTO>> usersModel = toEntityModels(userService.findUsersAfter(afterId, size), withLinks);
+        CollectionModel<EntityModel<UserDTO>> models = CollectionModel.of(usersModel,
+                linkTo(methodOn(UserController.class).findUsersPage(afterId, size, withLinks)).withSelfRel());
+        if (usersModel.size() == size) {
+            Integer lastId = usersModel.get(usersModel.size() - 1).getContent().id();
+            models.add(linkTo(methodOn(UserController.class).findUsersPage(lastId, size, withLinks))
+                    .withRel(IanaLinkRelations.NEXT));
+        }
         return ResponseEntity.ok(models);
     }
 
+
+    @Operation(summary = "Поиск.",
+            description = "Найти пользователей по имени, почте, возрасту и дате создания с сортировкой и "
+                    + "keyset-пагинацией: следующая страница - по ссылке next с курсором из предыдущего ответа.")
+    @GetMapping("search")
+    public ResponseEntity<CollectionModel<EntityModel<UserDTO>>> searchUsers(
+            @Valid @ParameterObject UserFilter filter,
+            @RequestParam(value = "sort", defaultValue = "ID")
+            @Parameter(description = "Поле сортировки") UserSort sort,
+            @RequestParam(value = "direction", defaultValue = "ASC")
+            @Parameter(description = "Направление сортировки") Sort.Direction direction,
+            @RequestParam(value = "cursor", required = false)
+            @Parameter(description = "Курсор из ссылки next предыдущей страницы") String cursor,
+            @Positive @Max(MAX_PAGE_SIZE) @RequestParam(value = "size", defaultValue = DEFAULT_PAGE_SIZE)
+            @Parameter(description = "Размер страницы") Integer size,
+            @RequestParam(value = "links", defaultValue = "true")
+            @Parameter(description = "Добавлять ссылки к каждому пользователю") Boolean withLinks
+    ) {
+        logger.info("searchUsers() filter = {}, sort = {} {}, cursor = {}, size = {}", filter, sort, direction, cursor, size);
+
+        UserCursor after = cursor == null ? null : UserCursor.decode(cursor, sort, direction);
+        List<UserDTO> users = userService.searchUsers(filter, sort, direction, after, size);
+        CollectionModel<EntityModel<UserDTO>> models = CollectionModel.of(toEntityModels(users, withLinks),
+                Link.of(ServletUriComponentsBuilder.fromCurrentRequest().toUriString()).withSelfRel());
+        if (users.size() == size) {
+            String next = UserCursor.of(sort, direction, users.get(users.size() - 1)).encode();
+            models.add(Link.of(ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("cursor", next).toUriString()).withRel(IanaLinkRelations.NEXT));
+        }
+        return ResponseEntity.ok(models);
+    }
+
+
+    @Operation(summary = "Выгрузить всех.",
+            description = "Потоковая выгрузка всех пользователей в формате NDJSON (одна строка JSON на пользователя).")
+    @GetMapping(value = "findAll/stream", produces = NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllUsers() {
+        logger.info("streamAllUsers()");
+
+        StreamingResponseBody body = outputStream -> userService.forEachUser(user -> {
+            try {
+                userWriter.writeValue(outputStream, user);
+                outputStream.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NDJSON_VALUE))
+                .body(body);
+    }
+
+
+    @Operation(summary = "Пакетное добавление.", description = "Добавить список пользователей в таблицу Users.")
+    @PutMapping("batch/create")
+    public ResponseEntity<List<BatchItemResult>> createUsers(
+            @Size(max = MAX_BATCH_SIZE) @RequestBody List<@Valid UserDTO> users
+    ) {
+        logger.info("createUsers() count = {}", users.size());
+
+        return ResponseEntity.ok(userBatchService.createUsers(users));
+    }
+
+
+    @Operation(summary = "Пакетное обновление.", description = "Обновить список пользователей в таблице Users по id.")
+    @PutMapping("batch/update")
+    public ResponseEntity<List<BatchItemResult>> updateUsers(
+            @Size(max = MAX_BATCH_SIZE) @RequestBody List<@Valid UserDTO> users
+    ) {
+        logger.info("updateUsers() count = {}", users.size());
+
+        return ResponseEntity.ok(userBatchService.updateUsers(users));
+    }
+
+
+    @Operation(summary = "Пакетное удаление.", description = "Удалить список пользователей из таблицы Users по id.")
+    @PutMapping("batch/delete")
+    public ResponseEntity<List<BatchItemResult>> deleteUsers(
+            @Size(max = MAX_BATCH_SIZE) @RequestBody List<@PositiveOrZero Integer> ids
+    ) {
+        logger.info("deleteUsers() count = {}", ids.size());
+
+        return ResponseEntity.ok(userBatchService.deleteUsers(ids));
+    }
+
     private EntityModel<UserDTO> toEntityModel(UserDTO user) {
         Link[] links = createLinks(user);
         return EntityModel.of(user, links);
     }
 
+    //Базовый адрес и общие ссылки вычисляются один раз на ответ; без ссылок - только данные.
+    private List<EntityModel<UserDTO>> toEntityModels(List<UserDTO> users, boolean withLinks) {
+        if (!withLinks) {
+            return users.stream().map(EntityModel::of).toList();
+        }
+        UserLinks.Expander links = userLinks.forCurrentRequest();
+        return users.stream()
+                .map(user -> EntityModel.of(user, links.of(user.id())))
+                .toList();
+    }
+
     private EntityModel<Map<String, Boolean>> toEntityModel(Boolean isHappened) {
         Map<String, Boolean> response = Map.of("success", isHappened);
-        UserDTO example = new UserDTO(1, "example", "example@mail.com", 11, LocalDateTime.now());
-        Link[] links = createLinks(example);
+        Link[] links = userLinks.forCurrentRequest().of(EXAMPLE_ID);
         return EntityModel.of(response, links);
     }
-    @JsonIgnoreProperties(ignoreUnknown = true)
+
     private Link[] createLinks(UserDTO user) {
-        UserDTO example = new UserDTO(1, "example", "example@mail.com", 11, LocalDateTime.now());
-        Link selfLink = linkTo(methodOn(UserController.class).getUserById(user.id())).withSelfRel();
-        Link createLink = linkTo(methodOn(UserController.class).createUser(example)).withRel("create");
-        Link updateLink = linkTo(methodOn(UserController.class).updateUser(user.id(), example)).withRel("update");
-        Link deleteLink = linkTo(methodOn(UserController.class).deleteUser(user.id())).withRel("delete");
-        Link allEmployeesLink = linkTo(methodOn(UserController.class).findAllUsers()).withRel("all-users");
-        return new Link[]{selfLink, createLink, updateLink, deleteLink, allEmployeesLink};
+        return userLinks.forCurrentRequest().of(user.id());
     }
 }
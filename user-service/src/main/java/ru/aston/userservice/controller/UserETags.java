@@ -0,0 +1,48 @@
+package ru.aston.userservice.controller;
+
+
+import ru.aston.userservice.model.UserDTO;
+
+import java.util.List;
+
+
+//ETag пользователя: версия строки и хэш данных. Хэш различает для If-None-Match пользователей, созданных заново
+//с тем же id и той же начальной версией; If-Match проверяет только версию. ETag списка складывается из ETag
+//всех пользователей по порядку.
+final class UserETags {
+
+    private UserETags() {
+    }
+
+    static String of(UserDTO user) {
+        return "\"" + user.version() + "-" + Integer.toHexString(user.hashCode()) + "\"";
+    }
+
+    static String of(List<UserDTO> users) {
+        long hash = 1;
+        for (UserDTO user : users) {
+            hash = 31 * hash + user.id();
+            hash = 31 * hash + (user.version() == null ? 0 : user.version());
+            hash = 31 * hash + user.hashCode();
+        }
+        return "\"" + users.size() + "-" + Long.toHexString(hash) + "\"";
+    }
+
+    //Версия из If-Match: null - заголовка нет или "*", -1 - значение не похоже на ETag пользователя.
+    //If-Match сравнивается строго: слабый ETag (W/) не совпадает ни с одной версией.
+    static Long versionOf(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        int dash = tag.indexOf('-');
+        if (!tag.startsWith("\"") || dash < 0) {
+            return -1L;
+        }
+        try {
+            return Long.parseLong(tag.substring(1, dash));
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+}
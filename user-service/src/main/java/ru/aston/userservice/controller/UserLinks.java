@@ -0,0 +1,73 @@
+package ru.aston.userservice.controller;
+
+
+import org.springframework.hateoas.Link;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
+
+
+//Шаблоны HATEOAS-ссылок на пользователя. Пути берутся из маппингов UserController через linkTo(methodOn(...))
+//один раз при создании контроллера; на запрос ссылка собирается подстановкой id, без прокси и рефлексии.
+final class UserLinks {
+    private static final String ID_VARIABLE = "{id}";
+
+    private final String[] selfTemplate;
+    private final String[] updateTemplate;
+    private final String[] deleteTemplate;
+    private final String createPath;
+    private final String allUsersPath;
+
+    UserLinks() {
+        UserController controller = methodOn(UserController.class);
+        this.selfTemplate = split(linkTo(controller.getUserById(null, null)).withSelfRel().getHref());
+        this.updateTemplate = split(linkTo(controller.updateUser(null, null, null)).withSelfRel().getHref());
+        this.deleteTemplate = split(linkTo(controller.deleteUser(null)).withSelfRel().getHref());
+        this.createPath = linkTo(controller.createUser(null, null)).withSelfRel().expand().getHref();
+        this.allUsersPath = linkTo(controller.findAllUsers(null, null, null)).withSelfRel().expand().getHref();
+    }
+
+    //Базовый адрес текущего запроса вычисляется один раз на ответ, а не на каждую строку.
+    Expander forCurrentRequest() {
+        String baseUri = RequestContextHolder.getRequestAttributes() == null
+                ? ""
+                : ServletUriComponentsBuilder.fromCurrentServletMapping().toUriString();
+        return new Expander(baseUri);
+    }
+
+    private static String[] split(String template) {
+        int index = template.indexOf(ID_VARIABLE);
+        if (index < 0) {
+            throw new IllegalStateException("Шаблон ссылки без " + ID_VARIABLE + ": " + template);
+        }
+        return new String[]{template.substring(0, index), template.substring(index + ID_VARIABLE.length())};
+    }
+
+    final class Expander {
+        private final String baseUri;
+        private final Link createLink;
+        private final Link allUsersLink;
+
+        private Expander(String baseUri) {
+            this.baseUri = baseUri;
+            this.createLink = Link.of(baseUri + createPath, "create");
+            this.allUsersLink = Link.of(baseUri + allUsersPath, "all-users");
+        }
+
+        Link[] of(Integer id) {
+            return new Link[]{
+                    Link.of(expand(selfTemplate, id)).withSelfRel(),
+                    createLink,
+                    Link.of(expand(updateTemplate, id), "update"),
+                    Link.of(expand(deleteTemplate, id), "delete"),
+                    allUsersLink
+            };
+        }
+
+        private String expand(String[] template, Integer id) {
+            return baseUri + template[0] + id + template[1];
+        }
+    }
+}
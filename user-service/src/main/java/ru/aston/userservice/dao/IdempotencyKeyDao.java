@@ -0,0 +1,29 @@
+package ru.aston.userservice.dao;
+
+import ru.aston.userservice.entity.IdempotencyKey;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+
+@Repository
+public interface IdempotencyKeyDao extends JpaRepository<IdempotencyKey, String> {
+    //0 - ключ уже занят. Параллельный повтор ждёт на уникальном индексе, пока первая транзакция не завершится.
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO user_idempotency_keys (idempotency_key, user_id, created_at) " +
+            "VALUES (:key, :userId, :createdAt) ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("key") String key, @Param("userId") Integer userId,
+                       @Param("createdAt") LocalDateTime createdAt);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IdempotencyKey k WHERE k.createdAt < :before")
+    int deleteOlderThan(@Param("before") LocalDateTime before);
+}
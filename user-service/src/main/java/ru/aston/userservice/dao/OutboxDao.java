@@ -0,0 +1,38 @@
+package ru.aston.userservice.dao;
+
+import ru.aston.userservice.entity.OutboxEvent;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+
+@Repository
+public interface OutboxDao extends JpaRepository<OutboxEvent, Long> {
+    //Блокировка на время транзакции захвата: события захватывает только одна реплика.
+    @Query(value = "SELECT pg_try_advisory_xact_lock(:key)", nativeQuery = true)
+    boolean tryLock(@Param("key") long key);
+
+    //Есть события, которые отправляет другой проход OutboxRelay и срок захвата которых не истёк.
+    @Query(value = "SELECT EXISTS (SELECT 1 FROM user_outbox WHERE claimed_until > now())", nativeQuery = true)
+    boolean hasActiveClaim();
+
+    @Query("SELECT e FROM OutboxEvent e ORDER BY e.id")
+    List<OutboxEvent> findOldest(Pageable pageable);
+
+    //Срок захвата считается по часам БД, одинаковым для всех реплик.
+    @Modifying
+    @Query(value = "UPDATE user_outbox SET claimed_until = now() + :leaseSeconds * interval '1 second' " +
+            "WHERE id IN (:ids)", nativeQuery = true)
+    int claim(@Param("ids") Collection<Long> ids, @Param("leaseSeconds") long leaseSeconds);
+
+    @Modifying
+    @Query(value = "UPDATE user_outbox SET claimed_until = NULL WHERE id IN (:ids)", nativeQuery = true)
+    int release(@Param("ids") Collection<Long> ids);
+}
@@ -0,0 +1,11 @@
+package ru.aston.userservice.dao;
+
+import ru.aston.userservice.entity.User;
+
+import java.util.List;
+
+
+public interface UserBatchDao {
+    void persistAll(List<User> users);
+    void flushAndClear();
+}
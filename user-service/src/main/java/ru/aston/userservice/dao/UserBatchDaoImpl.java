@@ -0,0 +1,31 @@
+package ru.aston.userservice.dao;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import ru.aston.userservice.entity.User;
+
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+
+//persist вместо save: для сущностей с заданным id save выполняет merge (SELECT + INSERT),
+//а persist копит INSERT'ы, которые Hibernate отправляет пачками hibernate.jdbc.batch_size.
+public class UserBatchDaoImpl implements UserBatchDao {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional
+    public void persistAll(List<User> users) {
+        users.forEach(entityManager::persist);
+        flushAndClear();
+    }
+
+    @Override
+    @Transactional
+    public void flushAndClear() {
+        entityManager.flush();
+        entityManager.clear();
+    }
+}
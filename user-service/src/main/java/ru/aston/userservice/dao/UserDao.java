@@ -1,30 +1,75 @@
 package ru.aston.userservice.dao;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import ru.aston.userservice.entity.User;
+import ru.aston.userservice.model.UserDTO;
+
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
 
 @Repository
-public interface UserDao extends JpaRepository<User, Integer> {
+public interface UserDao extends JpaRepository<User, Integer>, JpaSpecificationExecutor<User>, UserBatchDao {
+    //Изменение и чтение строки одним запросом: RETURNING отдаёт данные для события, без SELECT перед DELETE/UPDATE.
+    //Без @Modifying - запрос выполняется как выборка и возвращает строку, пустой результат - строки не было.
+    @Transactional
+    @Query(value = "DELETE FROM users WHERE id = :id RETURNING *", nativeQuery = true)
+    Optional<User> deleteReturning(@Param("id") Integer id);
+
+    //Вставка без предварительного SELECT: пустой результат - id или email уже заняты.
     @Transactional
-    @Modifying
-    @Query(value = "DELETE FROM users WHERE id = :id", nativeQuery = true)
-    Integer deleteAndReturnCount(@Param("id") Integer id);
+    @Query(value = "INSERT INTO users (id, name, email, age, created_at, version) " +
+            "VALUES (:id, :name, :email, :age, :createdAt, 0) ON CONFLICT DO NOTHING RETURNING *",
+            nativeQuery = true)
+    Optional<User> insertIfAbsent(
+            @Param("id") Integer id, @Param("name") String name, @Param("email") String email,
+            @Param("age") Integer age, @Param("createdAt") LocalDateTime createdAt
+    );
 
+    //expectedVersion = null - обновление без проверки версии.
     @Transactional
-    @Modifying
     @Query(value = "UPDATE users SET id = :newId, name = :newName, age = :newAge, email = :newEmail, " +
-            "created_at = :newCreatedAt WHERE id = :oldId", nativeQuery = true)
-    Integer updateUserAndReturnCount(
+            "created_at = :newCreatedAt, version = version + 1 " +
+            "WHERE id = :oldId AND (CAST(:expectedVersion AS bigint) IS NULL OR version = :expectedVersion) " +
+            "RETURNING *",
+            nativeQuery = true)
+    Optional<User> updateReturning(
             @Param("newId") Integer newId, @Param("newName") String newName,
             @Param("newAge") Integer newAge, @Param("newEmail") String newEmail,
-            @Param("newCreatedAt")LocalDateTime newCreatedAt,  @Param("oldId") Integer oldId
+            @Param("newCreatedAt")LocalDateTime newCreatedAt,  @Param("oldId") Integer oldId,
+            @Param("expectedVersion") Long expectedVersion
     );
+
+    //Поиск по уникальному индексу users_email_lower_key; email должен быть нормализован User.normalizeEmail.
+    @Query("SELECT u FROM User u WHERE lower(u.email) = :email")
+    Optional<User> findByEmail(@Param("email") String email);
+
+    @Query("SELECT u.id FROM User u WHERE u.id IN :ids")
+    List<Integer> findExistingIds(@Param("ids") Collection<Integer> ids);
+
+    @Query("SELECT new ru.aston.userservice.model.UserDTO(u.id, u.name, u.email, u.age, u.createdAt, u.version) " +
+            "FROM User u WHERE u.id > :afterId ORDER BY u.id")
+    List<UserDTO> findPageAfterId(@Param("afterId") Integer afterId, Pageable pageable);
+
+    //Курсор JDBC: строки читаются порциями, без загрузки всей таблицы в память
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new ru.aston.userservice.model.UserDTO(u.id, u.name, u.email, u.age, u.createdAt, u.version) " +
+            "FROM User u ORDER BY u.id")
+    Stream<UserDTO> streamAll();
 }
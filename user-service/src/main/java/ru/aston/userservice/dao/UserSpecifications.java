@@ -0,0 +1,87 @@
+package ru.aston.userservice.dao;
+
+
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import ru.aston.userservice.entity.User;
+import ru.aston.userservice.model.UserCursor;
+import ru.aston.userservice.model.UserFilter;
+import ru.aston.userservice.model.UserSort;
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+//Условия поиска пользователей для UserDao.findBy. Каждое условие ложится на индекс таблицы users:
+//префиксы имени и почты (LIKE 'prefix%') - на users_name_pattern_idx и users_email_pattern_idx
+//из db/migration/users-prefix-search.sql, остальные - на users_age_idx, users_created_at_idx.
+public final class UserSpecifications {
+
+    private UserSpecifications() {
+    }
+
+    public static Specification<User> matching(UserFilter filter) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (filter.name() != null && !filter.name().isEmpty()) {
+                predicates.add(startsWith(cb, root.get("name"), filter.name()));
+            }
+            if (filter.email() != null && !filter.email().isBlank()) {
+                predicates.add(startsWith(cb, cb.lower(root.get("email")), User.normalizeEmail(filter.email())));
+            }
+            if (filter.minAge() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("age"), filter.minAge()));
+            }
+            if (filter.maxAge() != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("age"), filter.maxAge()));
+            }
+            if (filter.createdFrom() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("createdAt"), filter.createdFrom()));
+            }
+            if (filter.createdTo() != null) {
+                predicates.add(cb.lessThan(root.get("createdAt"), filter.createdTo()));
+            }
+            return cb.and(predicates.toArray(Predicate[]::new));
+        };
+    }
+
+    //Пользователи после курсора в порядке (поле, id). Пустое поле считается наибольшим значением,
+    //как в ORDER BY Postgres: при ASC такие пользователи идут в конце, при DESC - в начале.
+    public static Specification<User> after(UserCursor cursor) {
+        return (root, query, cb) -> {
+            boolean asc = cursor.direction() == Sort.Direction.ASC;
+            Path<Integer> id = root.get("id");
+            Predicate idAfter = asc ? cb.greaterThan(id, cursor.id()) : cb.lessThan(id, cursor.id());
+            if (cursor.sort() == UserSort.ID) {
+                return idAfter;
+            }
+
+            Path<Comparable<Object>> field = root.get(cursor.sort().attribute());
+            if (cursor.value() == null) {
+                Predicate nullAfter = cb.and(cb.isNull(field), idAfter);
+                return asc ? nullAfter : cb.or(nullAfter, cb.isNotNull(field));
+            }
+
+            @SuppressWarnings("unchecked")
+            Comparable<Object> value = (Comparable<Object>) cursor.value();
+            Predicate valueAfter = asc ? cb.greaterThan(field, value) : cb.lessThan(field, value);
+            Predicate sameValue = cb.and(cb.equal(field, value), idAfter);
+            return asc ? cb.or(valueAfter, sameValue, cb.isNull(field)) : cb.or(valueAfter, sameValue);
+        };
+    }
+
+    public static Sort orderOf(UserSort sort, Sort.Direction direction) {
+        Sort byId = Sort.by(direction, "id");
+        return sort == UserSort.ID ? byId : Sort.by(direction, sort.attribute()).and(byId);
+    }
+
+    //Символы шаблона LIKE в префиксе экранируются и сравниваются как обычные.
+    private static Predicate startsWith(CriteriaBuilder cb, Expression<String> value, String prefix) {
+        String pattern = prefix.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+        return cb.like(value, pattern, '\\');
+    }
+}
@@ -0,0 +1,60 @@
+package ru.aston.userservice.entity;
+
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+import java.time.LocalDateTime;
+
+//Ключ Idempotency-Key запроса create: повтор с тем же ключом возвращает созданного пользователя
+//без новой вставки и события CREATE. Ключи старше users.idempotency.ttl удаляет IdempotencyKeyCleaner.
+@Entity
+@Table(name = "user_idempotency_keys", indexes = @Index(name = "user_idempotency_keys_created_at_idx",
+        columnList = "created_at"))
+public class IdempotencyKey {
+
+    @Id
+    @Column(name = "idempotency_key", nullable = false, columnDefinition = "varchar(255)")
+    private String key;
+
+    @Column(name = "user_id", nullable = false)
+    private Integer userId;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+
+    public IdempotencyKey() {
+    }
+
+    public IdempotencyKey(String key, Integer userId, LocalDateTime createdAt) {
+        this.key = key;
+        this.userId = userId;
+        this.createdAt = createdAt;
+    }
+
+
+    public String getKey() {
+        return key;
+    }
+
+    public Integer getUserId() {
+        return userId;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    @Override
+    public String toString() {
+        return "IdempotencyKey: " +
+                "key = " + key +
+                "; userId = " + userId +
+                "; createdAt = " + createdAt +
+                '.';
+    }
+}
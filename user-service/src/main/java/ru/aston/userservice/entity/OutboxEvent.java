@@ -0,0 +1,123 @@
+package ru.aston.userservice.entity;
+
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+
+import java.time.LocalDateTime;
+
+//Событие USERS, записанное в одной транзакции с изменением пользователя и ожидающее отправки в Kafka.
+@Entity
+@Table(name = "user_outbox")
+public class OutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_outbox_seq")
+    @SequenceGenerator(name = "user_outbox_seq", sequenceName = "user_outbox_seq", allocationSize = 50)
+    @Column(name = "id", nullable = false)
+    private Long id;
+
+    @Column(name = "command", nullable = false, columnDefinition = "varchar(16)")
+    private String command;
+
+    @Column(name = "user_id", nullable = false)
+    private Integer userId;
+
+    @Column(name = "previous_user_id")
+    private Integer previousUserId;
+
+    @Column(name = "payload", nullable = false, columnDefinition = "varchar(255)")
+    private String payload;
+
+    @Column(name = "name", columnDefinition = "varchar(255)")
+    private String name;
+
+    @Column(name = "version", nullable = false)
+    private Long version;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    //W3C traceparent запроса, изменившего пользователя; по нему OutboxRelay продолжает трассу
+    @Column(name = "trace_parent", columnDefinition = "varchar(55)")
+    private String traceParent;
+
+    //До какого момента событие отправляет захвативший его проход OutboxRelay; null - не захвачено
+    @Column(name = "claimed_until")
+    private LocalDateTime claimedUntil;
+
+
+    public OutboxEvent() {
+    }
+
+    public OutboxEvent(String command, Integer userId, Integer previousUserId, String payload, String name,
+                       Long version, LocalDateTime createdAt, String traceParent) {
+        this.command = command;
+        this.userId = userId;
+        this.previousUserId = previousUserId;
+        this.payload = payload;
+        this.name = name;
+        this.version = version;
+        this.createdAt = createdAt;
+        this.traceParent = traceParent;
+    }
+
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getCommand() {
+        return command;
+    }
+
+    public Integer getUserId() {
+        return userId;
+    }
+
+    public Integer getPreviousUserId() {
+        return previousUserId;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public String getTraceParent() {
+        return traceParent;
+    }
+
+    public LocalDateTime getClaimedUntil() {
+        return claimedUntil;
+    }
+
+    @Override
+    public String toString() {
+        return "OutboxEvent: " +
+                "id = " + id +
+                "; command = " + command +
+                "; userId = " + userId +
+                "; previousUserId = " + previousUserId +
+                "; payload = " + payload +
+                "; name = " + name +
+                "; version = " + version +
+                '.';
+    }
+}
@@ -6,12 +6,29 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.Table;
 import jakarta.persistence.Transient;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.UniqueConstraint;
+import jakarta.persistence.Version;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Locale;
 
+//Email записывается в нижнем регистре. Уникальность без учёта регистра, в том числе для адресов, записанных
+//до нормализации, обеспечивает индекс users_email_lower_key по lower(email): Hibernate функциональные индексы
+//не создаёт, он добавляется разовой миграцией db/migration/users-email-lower.sql.
+//Индексы (поле, id) - под keyset-сортировку поиска UserSpecifications и фильтры по возрасту и дате создания;
+//индексы под префиксы имени и почты добавляет db/migration/users-prefix-search.sql.
 @Entity
-@Table(name = "users")
+@Table(
+        name = "users",
+        uniqueConstraints = @UniqueConstraint(name = "users_email_key", columnNames = "email"),
+        indexes = {
+                @Index(name = "users_name_idx", columnList = "name, id"),
+                @Index(name = "users_age_idx", columnList = "age, id"),
+                @Index(name = "users_created_at_idx", columnList = "created_at, id")
+        }
+)
 public class User {
 
 
@@ -34,16 +51,26 @@ public class User {
     @Column(name = "created_at", nullable = false, table = "users")
     private LocalDateTime createdAt;
 
+    //Оптимистическая блокировка; из версии строится ETag ответов read и findAll.
+    @Version
+    @Column(name = "version", nullable = false, columnDefinition = "bigint default 0", table = "users")
+    private Long version;
+
 
     public User() {
     }
 
     public User(Integer id, String name, String email, Integer age, LocalDateTime createdAt) {
+        this(id, name, email, age, createdAt, null);
+    }
+
+    public User(Integer id, String name, String email, Integer age, LocalDateTime createdAt, Long version) {
         this.id = id;
         this.name = name;
-        this.email = email;
+        this.email = normalizeEmail(email);
         this.age = age;
         this.createdAt = createdAt;
+        this.version = version;
     }
 
 
@@ -68,7 +95,7 @@ public class User {
     }
 
     public void setEmail(String email) {
-        this.email = email;
+        this.email = normalizeEmail(email);
     }
 
     public Integer getAge() {
@@ -87,6 +114,14 @@ public class User {
         this.createdAt = createdAt;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     @Override
     public String toString() {
         return "User: " +
@@ -95,9 +130,14 @@ public class User {
                 "; email = " + email +
                 "; age = " + age +
                 "; createdAt = " + createdAt.format(formatter) +
+                "; version = " + version +
                 '.';
     }
 
+    public static String normalizeEmail(String email) {
+        return email == null ? null : email.trim().toLowerCase(Locale.ROOT);
+    }
+
     public boolean isEmpty() {
         return id == null && name == null && email == null && age == null;
     }
@@ -138,6 +178,7 @@ public class User {
         private String email;
         private Integer age;
         private LocalDateTime createdAt;
+        private Long version;
 
         UserBuilder() {
         }
@@ -167,8 +208,13 @@ public class User {
             return this;
         }
 
+        public UserBuilder version(Long version) {
+            this.version = version;
+            return this;
+        }
+
         public User build() {
-            return new User(id, name, email, age, createdAt);
+            return new User(id, name, email, age, createdAt, version);
         }
     }
 }
\ No newline at end of file
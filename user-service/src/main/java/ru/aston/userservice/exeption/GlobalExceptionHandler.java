@@ -7,11 +7,13 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import jakarta.persistence.EntityExistsException;
 import jakarta.persistence.EntityNotFoundException;
+import jakarta.persistence.OptimisticLockException;
 import jakarta.persistence.PersistenceException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.ValidationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -116,6 +118,86 @@ public class GlobalExceptionHandler {
     }
 
 
+    @ExceptionHandler({UserGoneException.class})
+    @ResponseStatus(HttpStatus.GONE)
+    @ApiResponse(
+            responseCode = "410",
+            description = "Пользователь, созданный по Idempotency-Key, удалён",
+            content = @Content(
+                    mediaType = "application/json",
+                    schema = @Schema(implementation = ErrorResponse.class),
+                    examples = @ExampleObject(
+                            value = """
+                            {
+                                "timestamp": "2023-11-21T11:13:13.285",
+                                "status": 410,
+                                "error": "Gone",
+                                "path": "/api/users/create",
+                                "message": "User 1 created with Idempotency-Key 42 was deleted"
+                            }
+                            """
+                    )
+            )
+    )
+    public ResponseEntity<Object> handleUserGoneException(UserGoneException exception,
+                                                          HttpServletRequest request
+    ) {
+        String path = request.getRequestURI();
+        logger.warn("Повтор запроса для удалённого пользователя. Операция отменена. {}", exception.getMessage());
+
+        ErrorResponse response = new ErrorResponse(
+                LocalDateTime.now(),
+                HttpStatus.GONE.value(),
+                HttpStatus.GONE.getReasonPhrase(),
+                path,
+                exception.getMessage()
+        );
+        return ResponseEntity
+                .status(HttpStatus.GONE)
+                .body(response);
+    }
+
+
+    @ExceptionHandler({OptimisticLockException.class, OptimisticLockingFailureException.class})
+    @ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+    @ApiResponse(
+            responseCode = "412",
+            description = "Пользователь изменён после получения ETag",
+            content = @Content(
+                    mediaType = "application/json",
+                    schema = @Schema(implementation = ErrorResponse.class),
+                    examples = @ExampleObject(
+                            value = """
+                            {
+                                "timestamp": "2023-11-21T11:13:13.285",
+                                "status": 412,
+                                "error": "Precondition Failed",
+                                "path": "/api/users/update/old-id/1",
+                                "message": "User version mismatch"
+                            }
+                            """
+                    )
+            )
+    )
+    public ResponseEntity<Object> handleOptimisticLockException(Exception exception,
+                                                                HttpServletRequest request
+    ) {
+        String path = request.getRequestURI();
+        logger.warn("Версия пользователя не совпала с If-Match. Операция отменена. {}", exception.getMessage());
+
+        ErrorResponse response = new ErrorResponse(
+                LocalDateTime.now(),
+                HttpStatus.PRECONDITION_FAILED.value(),
+                HttpStatus.PRECONDITION_FAILED.getReasonPhrase(),
+                path,
+                exception.getMessage()
+        );
+        return ResponseEntity
+                .status(HttpStatus.PRECONDITION_FAILED)
+                .body(response);
+    }
+
+
     @ExceptionHandler({PersistenceException.class})
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     @ApiResponse(
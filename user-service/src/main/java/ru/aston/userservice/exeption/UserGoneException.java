@@ -0,0 +1,11 @@
+package ru.aston.userservice.exeption;
+
+
+//Пользователь, созданный запросом с тем же Idempotency-Key, уже удалён: повтор не может вернуть
+//прежний ответ и не должен создавать пользователя заново.
+public class UserGoneException extends RuntimeException {
+
+    public UserGoneException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,53 @@
+package ru.aston.userservice.kafka;
+
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Service;
+import ru.aston.common.kafka.Command;
+import ru.aston.common.kafka.UserEvent;
+import ru.aston.userservice.model.UserDTO;
+
+import static ru.aston.userservice.config.CacheConfig.USERS_CACHE;
+import static ru.aston.userservice.config.KafkaConfig.USER_EVENT_LISTENER_FACTORY;
+import static ru.aston.userservice.kafka.Producer.USERS_TOPIC;
+
+
+//Каждая реплика читает USERS в собственной группе, поэтому событие получают все экземпляры user-service.
+//UPDATE не сбрасывает запись, если в кэше уже версия не старше события: событие опоздало или пришло повторно.
+@Service
+public class CacheInvalidationConsumer {
+    private static final Logger logger = LoggerFactory.getLogger(CacheInvalidationConsumer.class);
+
+    private final Cache cache;
+
+    public CacheInvalidationConsumer(CacheManager cacheManager) {
+        this.cache = cacheManager.getCache(USERS_CACHE);
+    }
+
+
+    @KafkaListener(
+            topics = USERS_TOPIC,
+            groupId = "${spring.application.name}-cache-${random.uuid}",
+            containerFactory = USER_EVENT_LISTENER_FACTORY,
+            properties = {"auto.offset.reset=latest"}
+    )
+    public void consume(final UserEvent event) {
+        logger.debug("consume() evict id = {}, previousId = {}, command = {}, version = {}",
+                event.id(), event.previousId(), event.command(), event.version());
+        if (event.command() != Command.UPDATE || !isCachedAtLeast(event.id(), event.version())) {
+            cache.evict(event.id());
+        }
+        if (event.previousId() != null) {
+            cache.evict(event.previousId());
+        }
+    }
+
+    private boolean isCachedAtLeast(Integer id, long version) {
+        UserDTO cached = cache.get(id, UserDTO.class);
+        return cached != null && cached.version() != null && cached.version() >= version;
+    }
+}
@@ -1,6 +0,0 @@
-package ru.aston.userservice.kafka;
-
-public enum Command {
-    CREATE,
-    DELETE;
-}
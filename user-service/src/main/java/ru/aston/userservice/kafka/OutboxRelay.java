@@ -0,0 +1,155 @@
+package ru.aston.userservice.kafka;
+
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.transport.ReceiverContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.aston.userservice.dao.OutboxDao;
+import ru.aston.userservice.entity.OutboxEvent;
+import ru.aston.common.kafka.Command;
+import ru.aston.common.kafka.UserEvent;
+
+import java.time.Duration;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+
+//Фоновая отправка outbox в Kafka пачками. У каждого пользователя (ключа записи) в полёте не больше одного
+//события: следующее уходит только после подтверждения предыдущего, разные пользователи отправляются параллельно.
+//Подтверждённые события удаляются; после ошибки события этого пользователя ждут следующего запуска,
+//поэтому порядок событий одного пользователя не нарушается и отправленные не уходят повторно.
+//Соединение с БД занято только на захват пачки и на её разбор, отправка в Kafka идёт вне транзакции:
+//захват (claimed_until) не даёт другой реплике взять события, пока идёт отправка. Если проход не завершился,
+//события отправляются заново после users.outbox.lease.
+@Component
+public class OutboxRelay {
+    private static final Logger logger = LoggerFactory.getLogger(OutboxRelay.class);
+    private static final long OUTBOX_LOCK_KEY = 0x5553455253L;
+    private static final String RELAY_OBSERVATION = "users.outbox.relay";
+
+    private final OutboxDao outboxDao;
+    private final Producer producer;
+    private final ObservationRegistry observationRegistry;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final Duration lease;
+
+    public OutboxRelay(OutboxDao outboxDao, Producer producer, ObservationRegistry observationRegistry,
+                       PlatformTransactionManager transactionManager,
+                       @Value("${users.outbox.batch-size:500}") int batchSize,
+                       @Value("${users.outbox.lease:5m}") Duration lease) {
+        this.outboxDao = outboxDao;
+        this.producer = producer;
+        this.observationRegistry = observationRegistry;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.lease = lease;
+    }
+
+    @Scheduled(fixedDelayString = "${users.outbox.poll-interval-ms:500}")
+    public void relay() {
+        List<OutboxEvent> events = transactionTemplate.execute(status -> claim());
+        if (events == null || events.isEmpty()) {
+            return;
+        }
+
+        List<Long> sent = send(events);
+        Set<Long> sentIds = new HashSet<>(sent);
+        List<Long> unsent = events.stream()
+                .map(OutboxEvent::getId)
+                .filter(id -> !sentIds.contains(id))
+                .toList();
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!sent.isEmpty()) {
+                outboxDao.deleteAllByIdInBatch(sent);
+            }
+            if (!unsent.isEmpty()) {
+                outboxDao.release(unsent);
+            }
+        });
+        logger.info("relay() sent = {} of {}", sent.size(), events.size());
+    }
+
+    //Пустой результат - outbox пуст или события уже отправляет другая реплика.
+    private List<OutboxEvent> claim() {
+        if (!outboxDao.tryLock(OUTBOX_LOCK_KEY) || outboxDao.hasActiveClaim()) {
+            return List.of();
+        }
+        List<OutboxEvent> events = outboxDao.findOldest(PageRequest.ofSize(batchSize));
+        if (!events.isEmpty()) {
+            outboxDao.claim(events.stream().map(OutboxEvent::getId).toList(), lease.toSeconds());
+        }
+        return events;
+    }
+
+    //Идентификаторы подтверждённых событий.
+    private List<Long> send(List<OutboxEvent> events) {
+        Map<Integer, Deque<OutboxEvent>> byUser = new LinkedHashMap<>();
+        for (OutboxEvent event : events) {
+            byUser.computeIfAbsent(event.getUserId(), userId -> new ArrayDeque<>()).add(event);
+        }
+
+        List<Long> sent = new ArrayList<>(events.size());
+        try {
+            while (!byUser.isEmpty()) {
+                Map<Integer, CompletableFuture<SendResult<String, UserEvent>>> wave = new LinkedHashMap<>();
+                byUser.forEach((userId, queue) -> wave.put(userId, send(queue.peek())));
+                producer.flush();
+                for (Map.Entry<Integer, CompletableFuture<SendResult<String, UserEvent>>> entry : wave.entrySet()) {
+                    Deque<OutboxEvent> queue = byUser.get(entry.getKey());
+                    try {
+                        entry.getValue().get();
+                        sent.add(queue.poll().getId());
+                        if (queue.isEmpty()) {
+                            byUser.remove(entry.getKey());
+                        }
+                    } catch (ExecutionException e) {
+                        logger.error("Ошибка отправки, событие и следующие события пользователя будут отправлены повторно. {}",
+                                queue.peek(), e.getCause());
+                        byUser.remove(entry.getKey());
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return sent;
+    }
+
+    //Отправка продолжает трассу запроса, записавшего событие: родитель спана берётся из traceparent события,
+    //а наблюдение KafkaTemplate внутри него передаёт контекст дальше в заголовке записи.
+    private CompletableFuture<SendResult<String, UserEvent>> send(OutboxEvent event) {
+        ReceiverContext<OutboxEvent> context = new ReceiverContext<>((carrier, key) ->
+                UserEventOutbox.TRACE_PARENT.equals(key) ? carrier.getTraceParent() : null);
+        context.setCarrier(event);
+        return Observation.createNotStarted(RELAY_OBSERVATION, () -> context, observationRegistry)
+                .lowCardinalityKeyValue("command", event.getCommand())
+                .observe(() -> producer.sendUserEvent(new UserEvent(
+                        Command.valueOf(event.getCommand()),
+                        event.getUserId(),
+                        event.getPreviousUserId(),
+                        event.getPayload(),
+                        event.getName(),
+                        event.getVersion(),
+                        event.getCreatedAt().atZone(ZoneId.systemDefault()).toInstant()
+                )));
+    }
+}
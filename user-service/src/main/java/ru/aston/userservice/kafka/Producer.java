@@ -1,25 +1,108 @@
 package ru.aston.userservice.kafka;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.kafka.common.errors.TimeoutException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Service;
+import ru.aston.common.kafka.Command;
+import ru.aston.common.kafka.UserEvent;
 
+import java.time.Duration;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 
 @Service
 public class Producer {
+    public static final String USERS_TOPIC = "USERS";
+    public static final String SEND_TIMER = "users.kafka.send";
+    public static final String SEND_FAILURES = "users.kafka.send.failures";
+    public static final String SEND_PENDING = "users.kafka.send.pending";
+
     private static final Logger logger = LoggerFactory.getLogger(Producer.class);
-    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final KafkaTemplate<String, UserEvent> kafkaTemplate;
+    private final MeterRegistry meterRegistry;
+    private final int maxPending;
+    private final Duration pendingTimeout;
+    private final Semaphore pending;
+    private final Counter failures;
 
-    public Producer(KafkaTemplate<String, String> kafkaTemplate) {
+    public Producer(KafkaTemplate<String, UserEvent> kafkaTemplate,
+                    MeterRegistry meterRegistry,
+                    @Value("${users.kafka.producer.max-pending:10000}") int maxPending,
+                    @Value("${users.kafka.producer.pending-timeout:30s}") Duration pendingTimeout) {
         this.kafkaTemplate = kafkaTemplate;
+        this.meterRegistry = meterRegistry;
+        this.maxPending = maxPending;
+        this.pendingTimeout = pendingTimeout;
+        this.pending = new Semaphore(maxPending);
+        this.failures = Counter.builder(SEND_FAILURES)
+                .description("USERS events rejected by Kafka or by the full send buffer")
+                .register(meterRegistry);
+        Gauge.builder(SEND_PENDING, this, Producer::pendingSends)
+                .description("USERS events sent but not yet acknowledged by Kafka")
+                .register(meterRegistry);
+    }
+
+    //Ключ записи - id пользователя: все события одного пользователя попадают в одну партицию и читаются по порядку.
+    //Не больше max-pending неподтверждённых отправок: при заполненном буфере вызов ждёт подтверждений.
+    public CompletableFuture<SendResult<String, UserEvent>> sendUserEvent(UserEvent event) {
+        logger.debug("sendUserEvent() event = {}", event);
+
+        if (!acquire()) {
+            failures.increment();
+            return CompletableFuture.failedFuture(
+                    new TimeoutException("Буфер отправки USERS заполнен дольше " + pendingTimeout));
+        }
+        Timer.Sample sample = Timer.start(meterRegistry);
+        CompletableFuture<SendResult<String, UserEvent>> future;
+        try {
+            future = this.kafkaTemplate.send(USERS_TOPIC, String.valueOf(event.id()), event);
+        } catch (RuntimeException e) {
+            pending.release();
+            failures.increment();
+            return CompletableFuture.failedFuture(e);
+        }
+        return future.whenComplete((result, e) -> {
+            pending.release();
+            sample.stop(sendTimer(event.command(), e == null));
+            if (e != null) {
+                failures.increment();
+            }
+        });
+    }
+
+    public void flush() {
+        this.kafkaTemplate.flush();
+    }
+
+    int pendingSends() {
+        return maxPending - pending.availablePermits();
+    }
+
+    private boolean acquire() {
+        try {
+            return pending.tryAcquire(pendingTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
     }
 
-    public CompletableFuture<SendResult<String, String>> sendMessage(String topic, String key, String message) {
-        logger.info("sendMessage() topic = {}, key = {}, message = {}", topic, key, message);
-        return this.kafkaTemplate.send(topic, key, message);
+    private Timer sendTimer(Command command, boolean success) {
+        return Timer.builder(SEND_TIMER)
+                .description("Time from send() to Kafka acknowledgement of a USERS event")
+                .tag("command", command.name())
+                .tag("outcome", success ? "success" : "failure")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
     }
 }
@@ -0,0 +1,70 @@
+package ru.aston.userservice.kafka;
+
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.transport.SenderContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.aston.userservice.dao.OutboxDao;
+import ru.aston.userservice.entity.OutboxEvent;
+import ru.aston.userservice.entity.User;
+import ru.aston.common.kafka.Command;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+
+//Запись событий USERS в outbox. Вызывается только внутри транзакции, изменяющей пользователей;
+//в Kafka события отправляет OutboxRelay. version события - @Version строки после изменения
+//(для DELETE - версия удалённой строки), по нему получатели отбрасывают устаревшие и повторные события.
+@Component
+public class UserEventOutbox {
+    public static final String TRACE_PARENT = "traceparent";
+    private static final Logger logger = LoggerFactory.getLogger(UserEventOutbox.class);
+    private static final String OUTBOX_OBSERVATION = "users.outbox.write";
+
+    private final OutboxDao outboxDao;
+    private final ObservationRegistry observationRegistry;
+
+    public UserEventOutbox(OutboxDao outboxDao, ObservationRegistry observationRegistry) {
+        this.outboxDao = outboxDao;
+        this.observationRegistry = observationRegistry;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void add(Command command, String email, String name, long version, Integer userId, Integer previousUserId) {
+        logger.info("add() command = {}, email = {}, userId = {}, previousUserId = {}",
+                command, email, userId, previousUserId);
+
+        write(traceParent -> outboxDao.save(new OutboxEvent(command.name(), userId, previousUserId, email, name,
+                version, LocalDateTime.now(), traceParent)));
+    }
+
+    //Версии сущностей должны быть уже выставлены flush-ем.
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void addAll(Command command, List<User> users) {
+        logger.info("addAll() command = {}, count = {}", command, users.size());
+
+        LocalDateTime now = LocalDateTime.now();
+        write(traceParent -> outboxDao.saveAll(users.stream()
+                .map(user -> new OutboxEvent(command.name(), user.getId(), null, user.getEmail(), user.getName(),
+                        user.getVersion(), now, traceParent))
+                .toList()));
+    }
+
+    //Запись идёт в спане отправителя: обработчик трассировки кладёт его traceparent в carrier,
+    //и событие уходит в outbox вместе с контекстом запроса. Без трассировки traceParent пустой.
+    private void write(Consumer<String> save) {
+        SenderContext<Map<String, String>> context = new SenderContext<>(Map::put);
+        context.setCarrier(new HashMap<>());
+        Observation.createNotStarted(OUTBOX_OBSERVATION, () -> context, observationRegistry)
+                .observe(() -> save.accept(context.getCarrier().get(TRACE_PARENT)));
+    }
+}
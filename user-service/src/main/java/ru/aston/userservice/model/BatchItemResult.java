@@ -0,0 +1,23 @@
+package ru.aston.userservice.model;
+
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+
+@Schema(description = "Результат обработки одного элемента пакетной операции.")
+public record BatchItemResult(
+        @Schema(description = "Идентификатор пользователя", example = "1")
+        Integer id,
+
+        @Schema(description = "Результат операции", example = "CREATED")
+        Status status
+) {
+    public enum Status {
+        CREATED,
+        UPDATED,
+        DELETED,
+        ALREADY_EXISTS,
+        NOT_FOUND,
+        DUPLICATE
+    }
+}
@@ -0,0 +1,49 @@
+package ru.aston.userservice.model;
+
+
+import jakarta.validation.ValidationException;
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+
+//Курсор keyset-пагинации поиска: значение поля сортировки и id последнего пользователя страницы.
+//Клиент получает его непрозрачной строкой и передаёт обратно без изменений.
+public record UserCursor(UserSort sort, Sort.Direction direction, Comparable<?> value, Integer id) {
+    private static final char SEPARATOR = ':';
+
+    public static UserCursor of(UserSort sort, Sort.Direction direction, UserDTO last) {
+        return new UserCursor(sort, direction, sort.valueOf(last), last.id());
+    }
+
+    //Курсор действителен только для той же сортировки, с которой он выдан.
+    public static UserCursor decode(String cursor, UserSort sort, Sort.Direction direction) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8)
+                    .split(String.valueOf(SEPARATOR), 4);
+            if (parts.length < 3 || UserSort.valueOf(parts[0]) != sort || Sort.Direction.valueOf(parts[1]) != direction) {
+                throw new ValidationException("Cursor does not match sort " + sort + " " + direction);
+            }
+            Comparable<?> value = parts.length == 4 ? sort.parse(parts[3]) : null;
+            return new UserCursor(sort, direction, value, Integer.valueOf(parts[2]));
+        } catch (ValidationException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            throw new ValidationException("Invalid cursor: " + cursor, e);
+        }
+    }
+
+    //sort:direction:id[:value], без value - у последнего пользователя поле сортировки пустое.
+    public String encode() {
+        StringBuilder builder = new StringBuilder()
+                .append(sort.name()).append(SEPARATOR)
+                .append(direction.name()).append(SEPARATOR)
+                .append(id);
+        if (value != null) {
+            builder.append(SEPARATOR).append(value);
+        }
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(builder.toString().getBytes(StandardCharsets.UTF_8));
+    }
+}
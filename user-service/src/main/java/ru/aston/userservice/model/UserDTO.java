@@ -8,6 +8,7 @@ import jakarta.validation.constraints.*;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Objects;
 
 
 @JsonIgnoreProperties({"links"})
@@ -32,11 +33,33 @@ public record UserDTO(
         Integer age,
 
         @Schema(description = "Дата и время создания пользователя", example = "2018-11-21T11:13:13.285", accessMode = Schema.AccessMode.READ_WRITE)
-        LocalDateTime createdAt
+        LocalDateTime createdAt,
+
+        @Schema(description = "Версия записи, меняется при каждом изменении пользователя", example = "0",
+                accessMode = Schema.AccessMode.READ_ONLY)
+        Long version
 )  {
     @Transient
     private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd MMMM yyyy HH:mm:ss");
 
+    public UserDTO(Integer id, String name, String email, Integer age, LocalDateTime createdAt) {
+        this(id, name, email, age, createdAt, null);
+    }
+
+    //Версия - служебное поле: пользователи сравниваются только по данным.
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof UserDTO user)) return false;
+        return Objects.equals(id, user.id) && Objects.equals(name, user.name) && Objects.equals(email, user.email)
+                && Objects.equals(age, user.age) && Objects.equals(createdAt, user.createdAt);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, name, email, age, createdAt);
+    }
+
     @Override
     public String toString() {
         return "User: " +
@@ -45,6 +68,7 @@ public record UserDTO(
                 "; email = " + email +
                 "; age = " + age +
                 "; createdAt = " + createdAt.format(formatter) +
+                "; version = " + version +
                 '.';
     }
 }
\ No newline at end of file
@@ -0,0 +1,35 @@
+package ru.aston.userservice.model;
+
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.PositiveOrZero;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDateTime;
+
+
+@Schema(description = "Условия поиска пользователей. Незаданные условия не применяются.")
+public record UserFilter(
+        @Schema(description = "Начало имени пользователя", example = "Na")
+        String name,
+
+        @Schema(description = "Начало почты пользователя, без учёта регистра", example = "example_")
+        String email,
+
+        @Schema(description = "Минимальный возраст, включительно", example = "18")
+        @PositiveOrZero
+        Integer minAge,
+
+        @Schema(description = "Максимальный возраст, включительно", example = "65")
+        @PositiveOrZero
+        Integer maxAge,
+
+        @Schema(description = "Создан не раньше, включительно", example = "2018-11-21T11:13:13")
+        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+        LocalDateTime createdFrom,
+
+        @Schema(description = "Создан раньше, не включительно", example = "2019-11-21T11:13:13")
+        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+        LocalDateTime createdTo
+) {
+}
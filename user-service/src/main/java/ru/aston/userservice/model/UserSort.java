@@ -0,0 +1,38 @@
+package ru.aston.userservice.model;
+
+
+import java.time.LocalDateTime;
+import java.util.function.Function;
+
+
+//Поле сортировки поиска: атрибут сущности User, значение этого поля у пользователя и разбор значения из курсора.
+public enum UserSort {
+    ID("id", UserDTO::id, Integer::valueOf),
+    NAME("name", UserDTO::name, Function.identity()),
+    EMAIL("email", UserDTO::email, Function.identity()),
+    AGE("age", UserDTO::age, Integer::valueOf),
+    CREATED_AT("createdAt", UserDTO::createdAt, LocalDateTime::parse);
+
+    private final String attribute;
+    private final Function<UserDTO, ? extends Comparable<?>> getter;
+    private final Function<String, ? extends Comparable<?>> parser;
+
+    UserSort(String attribute, Function<UserDTO, ? extends Comparable<?>> getter,
+             Function<String, ? extends Comparable<?>> parser) {
+        this.attribute = attribute;
+        this.getter = getter;
+        this.parser = parser;
+    }
+
+    public String attribute() {
+        return attribute;
+    }
+
+    public Comparable<?> valueOf(UserDTO user) {
+        return getter.apply(user);
+    }
+
+    public Comparable<?> parse(String value) {
+        return parser.apply(value);
+    }
+}
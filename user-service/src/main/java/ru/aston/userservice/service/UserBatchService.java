@@ -0,0 +1,13 @@
+package ru.aston.userservice.service;
+
+
+import ru.aston.userservice.model.BatchItemResult;
+import ru.aston.userservice.model.UserDTO;
+
+import java.util.List;
+
+public interface UserBatchService {
+    List<BatchItemResult> createUsers(final List<UserDTO> users);
+    List<BatchItemResult> updateUsers(final List<UserDTO> users);
+    List<BatchItemResult> deleteUsers(final List<Integer> ids);
+}
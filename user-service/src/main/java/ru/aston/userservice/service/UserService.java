@@ -1,14 +1,23 @@
 package ru.aston.userservice.service;
 
 
+import org.springframework.data.domain.Sort;
+import ru.aston.userservice.model.UserCursor;
 import ru.aston.userservice.model.UserDTO;
+import ru.aston.userservice.model.UserFilter;
+import ru.aston.userservice.model.UserSort;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface UserService {
     Optional<UserDTO> getUserById(final Integer id);
+    Optional<UserDTO> getUserByEmail(final String email);
     Optional<UserDTO> createUser(final UserDTO user);
-    boolean updateUser(final UserDTO user, int oldUserId);
+    Optional<UserDTO> createUser(final UserDTO user, final String idempotencyKey);
+    boolean updateUser(final UserDTO user, int oldUserId, Long expectedVersion);
     boolean deleteUserById(final Integer id);
-    List<UserDTO> findAllUsers();
+    List<UserDTO> findUsersAfter(final Integer afterId, int size);
+    List<UserDTO> searchUsers(UserFilter filter, UserSort sort, Sort.Direction direction, UserCursor after, int size);
+    void forEachUser(Consumer<UserDTO> action);
 }
\ No newline at end of file
@@ -0,0 +1,37 @@
+package ru.aston.userservice.service.impl;
+
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.aston.userservice.dao.IdempotencyKeyDao;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+
+//Ключ Idempotency-Key защищает от повторов только в пределах ttl: повторы шлюза и клиентов укладываются в минуты,
+//старые ключи удаляются, чтобы таблица не росла вместе с числом созданных пользователей.
+@Component
+public class IdempotencyKeyCleaner {
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyKeyCleaner.class);
+
+    private final IdempotencyKeyDao idempotencyKeyDao;
+    private final Duration ttl;
+
+    public IdempotencyKeyCleaner(IdempotencyKeyDao idempotencyKeyDao,
+                                 @Value("${users.idempotency.ttl:24h}") Duration ttl) {
+        this.idempotencyKeyDao = idempotencyKeyDao;
+        this.ttl = ttl;
+    }
+
+    @Scheduled(fixedDelayString = "${users.idempotency.purge-interval-ms:3600000}")
+    public void purge() {
+        int deleted = idempotencyKeyDao.deleteOlderThan(LocalDateTime.now().minus(ttl));
+        if (deleted > 0) {
+            logger.info("purge() deleted = {}", deleted);
+        }
+    }
+}
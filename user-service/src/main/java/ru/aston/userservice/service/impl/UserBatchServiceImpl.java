@@ -0,0 +1,168 @@
+package ru.aston.userservice.service.impl;
+
+
+import io.micrometer.observation.annotation.Observed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.aston.userservice.dao.UserDao;
+import ru.aston.userservice.entity.User;
+import ru.aston.common.kafka.Command;
+import ru.aston.userservice.kafka.UserEventOutbox;
+import ru.aston.userservice.model.BatchItemResult;
+import ru.aston.userservice.model.BatchItemResult.Status;
+import ru.aston.userservice.model.UserDTO;
+import ru.aston.userservice.service.UserBatchService;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static ru.aston.userservice.config.CacheConfig.USERS_CACHE;
+
+
+@Observed(name = "users.service")
+@Service
+public class UserBatchServiceImpl implements UserBatchService {
+    private static final Logger logger = LoggerFactory.getLogger(UserBatchServiceImpl.class);
+
+    private final UserDao userDao;
+    private final UserEventOutbox outbox;
+    private final Cache cache;
+    private final int batchSize;
+
+
+    public UserBatchServiceImpl(UserDao userDao, UserEventOutbox outbox, CacheManager cacheManager,
+                                @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:100}") int batchSize) {
+        this.userDao = userDao;
+        this.outbox = outbox;
+        //evict выполняется после коммита, см. CacheConfig
+        this.cache = cacheManager.getCache(USERS_CACHE);
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    @Transactional
+    public List<BatchItemResult> createUsers(final List<UserDTO> users) {
+        logger.info("createUsers() count = {}", users.size());
+
+        List<BatchItemResult> results = new ArrayList<>(users.size());
+        List<User> created = new ArrayList<>();
+        Set<Integer> seen = new HashSet<>();
+        for (List<UserDTO> chunk : chunks(users)) {
+            Set<Integer> existing = new HashSet<>(userDao.findExistingIds(ids(chunk, UserDTO::id)));
+            List<User> entities = new ArrayList<>(chunk.size());
+            for (UserDTO user : chunk) {
+                if (!seen.add(user.id())) {
+                    results.add(new BatchItemResult(user.id(), Status.DUPLICATE));
+                } else if (existing.contains(user.id())) {
+                    results.add(new BatchItemResult(user.id(), Status.ALREADY_EXISTS));
+                } else {
+                    User entity = toEntity(user);
+                    entities.add(entity);
+                    created.add(entity);
+                    results.add(new BatchItemResult(user.id(), Status.CREATED));
+                }
+            }
+            userDao.persistAll(entities);
+        }
+        created.forEach(user -> cache.evict(user.getId()));
+        outbox.addAll(Command.CREATE, created);
+        return results;
+    }
+
+    @Override
+    @Transactional
+    public List<BatchItemResult> updateUsers(final List<UserDTO> users) {
+        logger.info("updateUsers() count = {}", users.size());
+
+        List<BatchItemResult> results = new ArrayList<>(users.size());
+        List<User> updated = new ArrayList<>();
+        Set<Integer> seen = new HashSet<>();
+        for (List<UserDTO> chunk : chunks(users)) {
+            Map<Integer, User> found = findAllById(ids(chunk, UserDTO::id));
+            for (UserDTO user : chunk) {
+                User entity = found.get(user.id());
+                if (!seen.add(user.id())) {
+                    results.add(new BatchItemResult(user.id(), Status.DUPLICATE));
+                } else if (entity == null) {
+                    results.add(new BatchItemResult(user.id(), Status.NOT_FOUND));
+                } else {
+                    entity.setName(user.name());
+                    entity.setEmail(user.email());
+                    entity.setAge(user.age());
+                    entity.setCreatedAt(user.createdAt());
+                    updated.add(entity);
+                    results.add(new BatchItemResult(user.id(), Status.UPDATED));
+                }
+            }
+            userDao.flushAndClear();
+        }
+        updated.forEach(user -> cache.evict(user.getId()));
+        outbox.addAll(Command.UPDATE, updated);
+        return results;
+    }
+
+    @Override
+    @Transactional
+    public List<BatchItemResult> deleteUsers(final List<Integer> ids) {
+        logger.info("deleteUsers() count = {}", ids.size());
+
+        List<BatchItemResult> results = new ArrayList<>(ids.size());
+        List<User> deleted = new ArrayList<>();
+        Set<Integer> seen = new HashSet<>();
+        for (List<Integer> chunk : chunks(ids)) {
+            Map<Integer, User> found = findAllById(new HashSet<>(chunk));
+            for (Integer id : chunk) {
+                if (!seen.add(id)) {
+                    results.add(new BatchItemResult(id, Status.DUPLICATE));
+                } else if (!found.containsKey(id)) {
+                    results.add(new BatchItemResult(id, Status.NOT_FOUND));
+                } else {
+                    deleted.add(found.get(id));
+                    results.add(new BatchItemResult(id, Status.DELETED));
+                }
+            }
+            userDao.deleteAllByIdInBatch(found.keySet());
+            userDao.flushAndClear();
+        }
+        deleted.forEach(user -> cache.evict(user.getId()));
+        outbox.addAll(Command.DELETE, deleted);
+        return results;
+    }
+
+    private Map<Integer, User> findAllById(Set<Integer> ids) {
+        return userDao.findAllById(ids).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+    }
+
+    private <T> List<List<T>> chunks(List<T> items) {
+        List<List<T>> chunks = new ArrayList<>();
+        for (int from = 0; from < items.size(); from += batchSize) {
+            chunks.add(items.subList(from, Math.min(from + batchSize, items.size())));
+        }
+        return chunks;
+    }
+
+    private <T> Set<Integer> ids(List<T> items, Function<T, Integer> id) {
+        return items.stream().map(id).collect(Collectors.toSet());
+    }
+
+    private User toEntity(UserDTO user) {
+        return User.builder().
+                id(user.id()).
+                name(user.name()).
+                email(user.email()).
+                age(user.age()).
+                createdAt(user.createdAt()).
+                build();
+    }
+}
@@ -1,36 +1,63 @@
 package ru.aston.userservice.service.impl;
 
 
+import jakarta.persistence.EntityExistsException;
+import jakarta.persistence.OptimisticLockException;
+import jakarta.validation.ValidationException;
+import io.micrometer.observation.annotation.Observed;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.aston.userservice.dao.IdempotencyKeyDao;
 import ru.aston.userservice.dao.UserDao;
+import ru.aston.userservice.dao.UserSpecifications;
+import ru.aston.userservice.entity.IdempotencyKey;
 import ru.aston.userservice.entity.User;
-import ru.aston.userservice.kafka.Command;
-import ru.aston.userservice.kafka.Producer;
+import ru.aston.userservice.exeption.UserGoneException;
+import ru.aston.common.kafka.Command;
+import ru.aston.userservice.kafka.UserEventOutbox;
+import ru.aston.userservice.model.UserCursor;
 import ru.aston.userservice.model.UserDTO;
+import ru.aston.userservice.model.UserFilter;
+import ru.aston.userservice.model.UserSort;
 import ru.aston.userservice.service.UserService;
 
-import java.util.ArrayList;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
+import static ru.aston.userservice.config.CacheConfig.USERS_CACHE;
 
+
+//Таймер users.service с тегами class и method на каждый публичный метод.
+@Observed(name = "users.service")
 @Service
 public class UserServiceImpl implements UserService {
     private static final Logger logger = LoggerFactory.getLogger(UserServiceImpl.class);
 
     private final UserDao userDao;
-    private final Producer producer;
+    private final IdempotencyKeyDao idempotencyKeyDao;
+    private final UserEventOutbox outbox;
 
 
-    public UserServiceImpl(UserDao userDao,Producer producer) {
+    public UserServiceImpl(UserDao userDao, IdempotencyKeyDao idempotencyKeyDao, UserEventOutbox outbox) {
         this.userDao = userDao;
-        this.producer = producer;
+        this.idempotencyKeyDao = idempotencyKeyDao;
+        this.outbox = outbox;
     }
 
     @Override
+    @Cacheable(cacheNames = USERS_CACHE, key = "#id", unless = "#result == null")
     public Optional<UserDTO> getUserById(Integer id) {
         logger.info("getUserById() id = {}", id);
 
@@ -43,61 +70,146 @@ public class UserServiceImpl implements UserService {
     }
 
     @Override
+    public Optional<UserDTO> getUserByEmail(final String email) {
+        logger.info("getUserByEmail() email = {}", email);
+
+        return userDao.findByEmail(User.normalizeEmail(email)).map(this::convertToDTO);
+    }
+
+    @Override
+    @Transactional
+    @CacheEvict(cacheNames = USERS_CACHE, key = "#userDto.id")
     public Optional<UserDTO> createUser(UserDTO userDto) {
-        logger.info("createUser() = {}", userDto);
-
-        User entity = User.builder().
-                id(userDto.id()).
-                name(userDto.name()).
-                email(userDto.email()).
-                age(userDto.age()).
-                createdAt(userDto.createdAt()).
-                build();
-        UserDTO userDTOFromDB = convertToDTO(userDao.save(entity));
-        if (userDto != null)
+        return createUser(userDto, null);
+    }
+
+    //Один INSERT ... ON CONFLICT вместо SELECT + INSERT. Событие CREATE пишется только при реальной вставке,
+    //поэтому повторы запроса (с ключом или без) не порождают лишних событий.
+    @Override
+    @Transactional
+    @CacheEvict(cacheNames = USERS_CACHE, key = "#userDto.id")
+    public Optional<UserDTO> createUser(UserDTO userDto, String idempotencyKey) {
+        logger.info("createUser() idempotencyKey = {}, user = {}", idempotencyKey, userDto);
+
+        if (idempotencyKey != null
+                && idempotencyKeyDao.insertIfAbsent(idempotencyKey, userDto.id(), LocalDateTime.now()) == 0)
         {
-            producer.sendMessage("USERS", Command.CREATE.name(), userDto.email());
+            return replay(idempotencyKey, userDto);
         }
-        return Optional.ofNullable(userDTOFromDB);
+        Optional<User> inserted = userDao.insertIfAbsent(userDto.id(), userDto.name(),
+                User.normalizeEmail(userDto.email()), userDto.age(), userDto.createdAt());
+        if (inserted.isEmpty())
+        {
+            return existing(userDto);
+        }
+        User user = inserted.get();
+        outbox.add(Command.CREATE, user.getEmail(), user.getName(), user.getVersion(), user.getId(), null);
+        return Optional.of(convertToDTO(user));
     }
 
     @Override
-    public boolean updateUser(final UserDTO newUser, int oldUserId) {
-        logger.info("updateUser() id = {} with {}", oldUserId, newUser);
-
-        int sumOfUpdate = userDao.updateUserAndReturnCount(
-                newUser.id(), newUser.name(), newUser.age(), newUser.email(), newUser.createdAt(), oldUserId
+    @Transactional
+    @Caching(evict = {
+            @CacheEvict(cacheNames = USERS_CACHE, key = "#oldUserId"),
+            @CacheEvict(cacheNames = USERS_CACHE, key = "#newUser.id")
+    })
+    public boolean updateUser(final UserDTO newUser, int oldUserId, Long expectedVersion) {
+        logger.info("updateUser() id = {}, expectedVersion = {} with {}", oldUserId, expectedVersion, newUser);
+
+        Optional<User> updated = userDao.updateReturning(
+                newUser.id(), newUser.name(), newUser.age(), User.normalizeEmail(newUser.email()), newUser.createdAt(),
+                oldUserId,
+                expectedVersion
         );
-        return sumOfUpdate > 0;
+        if (updated.isEmpty() && expectedVersion != null)
+        {
+            throw new OptimisticLockException("Пользователь с id " + oldUserId + " изменён, ожидалась версия "
+                    + expectedVersion);
+        }
+        updated.ifPresent(user -> {
+            Integer previousUserId = user.getId().equals(oldUserId) ? null : oldUserId;
+            outbox.add(Command.UPDATE, user.getEmail(), user.getName(), user.getVersion(), user.getId(), previousUserId);
+        });
+        return updated.isPresent();
     }
 
     @Override
+    @Transactional
+    @CacheEvict(cacheNames = USERS_CACHE, key = "#id")
     public boolean deleteUserById(final Integer id) {
         logger.info("deleteUserById() id = {}", id);
 
-        Optional<User> user = userDao.findById(id);
-        if (user.isEmpty())
-        {
-            return false;
+        Optional<User> deleted = userDao.deleteReturning(id);
+        deleted.ifPresent(user ->
+                outbox.add(Command.DELETE, user.getEmail(), user.getName(), user.getVersion(), id, null));
+        return deleted.isPresent();
+    }
+
+
+    @Override
+    public List<UserDTO> findUsersAfter(final Integer afterId, int size) {
+        logger.info("findUsersAfter() afterId = {}, size = {}", afterId, size);
+
+        return userDao.findPageAfterId(afterId, PageRequest.ofSize(size));
+    }
+
+    //В базу уходят фильтр, сортировка и LIMIT: читается только нужная страница.
+    @Override
+    @Transactional(readOnly = true)
+    public List<UserDTO> searchUsers(UserFilter filter, UserSort sort, Sort.Direction direction, UserCursor after,
+                                     int size) {
+        logger.info("searchUsers() filter = {}, sort = {} {}, after = {}, size = {}", filter, sort, direction, after, size);
+
+        Specification<User> specification = UserSpecifications.matching(filter);
+        if (after != null) {
+            specification = specification.and(UserSpecifications.after(after));
         }
-        int sumOfDeleted = userDao.deleteAndReturnCount(id);
-        if (sumOfDeleted > 0)
+        Sort order = UserSpecifications.orderOf(sort, direction);
+        return userDao.findBy(specification, query -> query.sortBy(order).limit(size).all()).stream()
+                .map(this::convertToDTO)
+                .toList();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachUser(Consumer<UserDTO> action) {
+        logger.info("forEachUser()");
+
+        try (Stream<UserDTO> users = userDao.streamAll()) {
+            users.forEach(action);
+        }
+    }
+
+    //Повтор с тем же ключом: ответ - пользователь, созданный первым запросом, если он ещё не удалён.
+    private Optional<UserDTO> replay(String idempotencyKey, UserDTO userDto) {
+        IdempotencyKey stored = idempotencyKeyDao.findById(idempotencyKey).orElseThrow();
+        if (!stored.getUserId().equals(userDto.id()))
         {
-            producer.sendMessage("USERS", Command.DELETE.name(), user.get().getEmail());
+            throw new ValidationException("Idempotency-Key " + idempotencyKey + " already used for user "
+                    + stored.getUserId());
         }
-        return sumOfDeleted > 0;
+        logger.info("createUser() повтор по ключу {}, пользователь {} уже создан", idempotencyKey, stored.getUserId());
+        UserDTO user = userDao.findById(stored.getUserId()).map(this::convertToDTO)
+                .orElseThrow(() -> new UserGoneException("User " + stored.getUserId() + " created with Idempotency-Key "
+                        + idempotencyKey + " was deleted"));
+        return Optional.of(user);
     }
 
+    //Повтор без ключа узнаётся по данным: тот же пользователь - ответ без нового события, другой - конфликт.
+    //createdAt сравнивается с точностью БД: timestamp хранит микросекунды, драйвер округляет наносекунды.
+    private Optional<UserDTO> existing(UserDTO userDto) {
+        UserDTO requested = new UserDTO(userDto.id(), userDto.name(), User.normalizeEmail(userDto.email()),
+                userDto.age(), toDbPrecision(userDto.createdAt()));
+        Optional<UserDTO> existing = userDao.findById(userDto.id()).map(this::convertToDTO);
+        if (existing.isPresent() && existing.get().equals(requested))
+        {
+            return existing;
+        }
+        throw new EntityExistsException("User already exist with id " + userDto.id() + " or email " + requested.email());
+    }
 
-    @Override
-    public List<UserDTO> findAllUsers() {
-        logger.info("findAllUsers()");
-
-        List<UserDTO> users = new ArrayList<>();
-        users = userDao.findAll().stream()
-                .map(entity -> convertToDTO(entity))
-                .collect(Collectors.toList());
-        return users;
+    private static LocalDateTime toDbPrecision(LocalDateTime dateTime) {
+        return dateTime == null ? null : dateTime.plusNanos(500).truncatedTo(ChronoUnit.MICROS);
     }
 
     public String fallbackMethod(Exception e) {
@@ -106,6 +218,7 @@ public class UserServiceImpl implements UserService {
     }
 
     private UserDTO convertToDTO(User entity) {
-        return new UserDTO(entity.getId(), entity.getName(), entity.getEmail(), entity.getAge(), entity.getCreatedAt());
+        return new UserDTO(entity.getId(), entity.getName(), entity.getEmail(), entity.getAge(), entity.getCreatedAt(),
+                entity.getVersion());
     }
 }
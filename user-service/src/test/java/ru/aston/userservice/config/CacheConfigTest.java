@@ -0,0 +1,54 @@
+package ru.aston.userservice.config;
+
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.cache.CacheProperties;
+import org.springframework.cache.Cache;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static ru.aston.userservice.config.CacheConfig.USERS_CACHE;
+
+public class CacheConfigTest {
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void evict_insideTransaction_waitsForCommit() {
+        Cache cache = cache();
+        cache.put(1, "user");
+
+        TransactionSynchronizationManager.initSynchronization();
+        cache.evict(1);
+        assertNotNull(cache.get(1));
+
+        TransactionSynchronizationUtils.triggerAfterCommit();
+        assertNull(cache.get(1));
+    }
+
+    @Test
+    void evict_outsideTransaction_isImmediate() {
+        Cache cache = cache();
+        cache.put(1, "user");
+
+        cache.evict(1);
+
+        assertNull(cache.get(1));
+    }
+
+    private static Cache cache() {
+        CacheProperties properties = new CacheProperties();
+        properties.setCacheNames(List.of(USERS_CACHE));
+        properties.getCaffeine().setSpec("maximumSize=10");
+        return new CacheConfig().cacheManager(properties).getCache(USERS_CACHE);
+    }
+}
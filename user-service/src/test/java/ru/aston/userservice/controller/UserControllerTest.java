@@ -9,14 +9,19 @@ import org.junit.Assert;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
 import org.springframework.http.*;
 import org.springframework.web.client.HttpClientErrorException;
 import ru.aston.userservice.dao.UserDao;
+import org.springframework.data.domain.Sort;
+import ru.aston.userservice.model.UserCursor;
 import ru.aston.userservice.model.UserDTO;
+import ru.aston.userservice.model.UserSort;
 import ru.aston.userservice.service.UserService;
 
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -33,9 +38,13 @@ public class UserControllerTest extends BaseIntegrationTest {
     @Autowired
     private UserDao userDao;
 
+    @Autowired
+    private CacheManager cacheManager;
+
     @BeforeEach
     public void cleanUp() {
         userDao.deleteAll();
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
     }
 
     @Test
@@ -64,6 +73,26 @@ public class UserControllerTest extends BaseIntegrationTest {
                 UserDTO.class));
     }
 
+    @Test
+    public void getUserByEmail_whenCaseDiffers_returnsUser() {
+        userService.createUser(new UserDTO(105, "testCreate", "Create@Test.tt", 105, timeNow()));
+        final ResponseEntity<UserDTO> response = restTemplate.getForEntity(
+                String.format("http://localhost:%d/api/users/read/email/%s", port, "CREATE@test.TT"),
+                UserDTO.class);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertNotNull(response.getHeaders().getETag());
+        assertEquals(Integer.valueOf(105), response.getBody().id());
+        assertEquals("create@test.tt", response.getBody().email());
+    }
+
+    @Test
+    public void getUserByEmail_whenNotExists() {
+        Assert.assertThrows(HttpClientErrorException.NotFound.class, () -> restTemplate.getForEntity(
+                String.format("http://localhost:%d/api/users/read/email/%s", port, "absent@test.tt"),
+                UserDTO.class));
+    }
+
     @Test
     public void createUser_whenUserExists_returnsCreatedUser() {
         UserDTO userDTO = new UserDTO(105, "testCreate", "create@test.tt", 105, timeNow());
@@ -86,6 +115,119 @@ public class UserControllerTest extends BaseIntegrationTest {
 
 
 
+    @Test
+    public void createUser_whenRetriedWithSameIdempotencyKey_returnsFirstUser() {
+        final HttpHeaders headers = new HttpHeaders();
+        headers.set("Idempotency-Key", "create-105");
+        String url = String.format("http://localhost:%d/api/users/create", port);
+
+        final ResponseEntity<UserDTO> first = restTemplate.exchange(url, HttpMethod.PUT,
+                new HttpEntity<>(new UserDTO(105, "testCreate", "create@test.tt", 105, timeNow()), headers),
+                UserDTO.class);
+        final ResponseEntity<UserDTO> retry = restTemplate.exchange(url, HttpMethod.PUT,
+                new HttpEntity<>(new UserDTO(105, "testRetry", "retry@test.tt", 105, timeNow()), headers),
+                UserDTO.class);
+
+        assertEquals(HttpStatus.OK, retry.getStatusCode());
+        assertEquals(first.getBody(), retry.getBody());
+        assertEquals("testCreate", userService.getUserById(105).get().name());
+    }
+
+    @Test
+    public void createUser_whenRetriedAfterUserDeleted_returnsGone() {
+        final HttpHeaders headers = new HttpHeaders();
+        headers.set("Idempotency-Key", "create-105");
+        String url = String.format("http://localhost:%d/api/users/create", port);
+        UserDTO userDTO = new UserDTO(105, "testCreate", "create@test.tt", 105, timeNow());
+
+        restTemplate.exchange(url, HttpMethod.PUT, new HttpEntity<>(userDTO, headers), UserDTO.class);
+        userService.deleteUserById(105);
+
+        Assert.assertThrows(HttpClientErrorException.Gone.class, () -> restTemplate.exchange(url, HttpMethod.PUT,
+                new HttpEntity<>(userDTO, headers), UserDTO.class));
+        assertTrue(userService.getUserById(105).isEmpty());
+    }
+
+    @Test
+    public void createUser_whenRetriedWithNanosecondCreatedAt_returnsSameUser() {
+        String url = String.format("http://localhost:%d/api/users/create", port);
+        UserDTO userDTO = new UserDTO(105, "testCreate", "create@test.tt", 105,
+                LocalDateTime.of(2025, 1, 1, 12, 0, 0, 123_456_789));
+
+        final ResponseEntity<UserDTO> first = restTemplate.exchange(url, HttpMethod.PUT,
+                new HttpEntity<>(userDTO), UserDTO.class);
+        final ResponseEntity<UserDTO> retry = restTemplate.exchange(url, HttpMethod.PUT,
+                new HttpEntity<>(userDTO), UserDTO.class);
+
+        assertEquals(HttpStatus.OK, retry.getStatusCode());
+        assertEquals(first.getBody(), retry.getBody());
+    }
+
+    @Test
+    public void createUser_whenIdTakenByOtherUser_returnsConflict() {
+        userService.createUser(new UserDTO(105, "testCreate", "create@test.tt", 105, timeNow()));
+
+        Assert.assertThrows(HttpClientErrorException.Conflict.class, () -> restTemplate.exchange(
+                String.format("http://localhost:%d/api/users/create", port),
+                HttpMethod.PUT,
+                new HttpEntity<>(new UserDTO(105, "testOther", "other@test.tt", 105, timeNow())),
+                UserDTO.class));
+        assertEquals("testCreate", userService.getUserById(105).get().name());
+    }
+
+    @Test
+    public void getUserById_whenETagMatches_returnsNotModified() {
+        userService.createUser(new UserDTO(105, "testCreate", "create@test.tt", 105, timeNow()));
+        String url = String.format("http://localhost:%d/api/users/read/id/%d", port, 105);
+        String eTag = restTemplate.getForEntity(url, JsonNode.class).getHeaders().getETag();
+
+        final HttpHeaders headers = new HttpHeaders();
+        headers.setIfNoneMatch(eTag);
+        final ResponseEntity<String> response = restTemplate.exchange(
+                url, HttpMethod.GET, new HttpEntity<>(headers), String.class);
+
+        assertNotNull(eTag);
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        assertNull(response.getBody());
+    }
+
+    @Test
+    public void updateUser_whenIfMatchIsStale_returnsPreconditionFailed() {
+        userService.createUser(new UserDTO(105, "testCreate", "create@test.tt", 105, timeNow()));
+        String readUrl = String.format("http://localhost:%d/api/users/read/id/%d", port, 105);
+        String updateUrl = String.format("http://localhost:%d/api/users/update/old-id/%d", port, 105);
+        String eTag = restTemplate.getForEntity(readUrl, JsonNode.class).getHeaders().getETag();
+
+        final HttpHeaders headers = new HttpHeaders();
+        headers.setIfMatch(eTag);
+        final ResponseEntity<JsonNode> first = restTemplate.exchange(updateUrl, HttpMethod.PUT,
+                new HttpEntity<>(new UserDTO(105, "testFirst", "first@test.tt", 105, timeNow()), headers),
+                JsonNode.class);
+        assertEquals(HttpStatus.OK, first.getStatusCode());
+        assertTrue(first.getBody().get("success").asBoolean());
+
+        Assert.assertThrows(HttpClientErrorException.class, () -> restTemplate.exchange(updateUrl, HttpMethod.PUT,
+                new HttpEntity<>(new UserDTO(105, "testSecond", "second@test.tt", 105, timeNow()), headers),
+                JsonNode.class));
+        assertEquals("testFirst", userService.getUserById(105).get().name());
+        assertNotEquals(eTag, restTemplate.getForEntity(readUrl, JsonNode.class).getHeaders().getETag());
+    }
+
+    @Test
+    public void updateUser_whenIfMatchIsWeak_returnsPreconditionFailed() {
+        userService.createUser(new UserDTO(105, "testCreate", "create@test.tt", 105, timeNow()));
+        String readUrl = String.format("http://localhost:%d/api/users/read/id/%d", port, 105);
+        String updateUrl = String.format("http://localhost:%d/api/users/update/old-id/%d", port, 105);
+        String eTag = restTemplate.getForEntity(readUrl, JsonNode.class).getHeaders().getETag();
+
+        final HttpHeaders headers = new HttpHeaders();
+        headers.setIfMatch("W/" + eTag);
+        Assert.assertThrows(HttpClientErrorException.class, () -> restTemplate.exchange(updateUrl, HttpMethod.PUT,
+                new HttpEntity<>(new UserDTO(105, "testUpdate", "update@test.tt", 105, timeNow()), headers),
+                JsonNode.class));
+        assertEquals("testCreate", userService.getUserById(105).get().name());
+    }
+
     @Test
     public void updateUser_whenUserExists_returnTrue() {
         UserDTO userDTO = new UserDTO(105, "testCreate", "create@test.tt", 105, timeNow());
@@ -101,7 +243,7 @@ public class UserControllerTest extends BaseIntegrationTest {
                 JsonNode.class);
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertTrue(response.getBody().get("success").asBoolean());
-        List<UserDTO> usersAfterUpdate = userService.findAllUsers();
+        List<UserDTO> usersAfterUpdate = allUsers();
         assertTrue(usersAfterUpdate.size() == 1);
         assertEquals(newUserDTO, usersAfterUpdate.get(0));
     }
@@ -122,7 +264,7 @@ public class UserControllerTest extends BaseIntegrationTest {
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertFalse(response.getBody().get("success").asBoolean());
-        List<UserDTO> usersAfterUpdate = userService.findAllUsers();
+        List<UserDTO> usersAfterUpdate = allUsers();
         assertTrue(usersAfterUpdate.size() == 1);
         assertEquals(userDTO, usersAfterUpdate.get(0));
     }
@@ -190,6 +332,191 @@ public class UserControllerTest extends BaseIntegrationTest {
 
     }
 
+    @Test
+    public void findAllUsers_whenMoreUsersThanSize_returnsFirstPageWithNextLink() {
+        userService.createUser(new UserDTO(1, "One", "first_1@test.tt", 1, timeNow()));
+        userService.createUser(new UserDTO(2, "Two", "first_2@test.tt", 2, timeNow()));
+        userService.createUser(new UserDTO(3, "Three", "first_3@test.tt", 3, timeNow()));
+
+        final ResponseEntity<JsonNode> response = restTemplate.exchange(
+                String.format("http://localhost:%d/api/users/findAll?size=2", port), HttpMethod.GET, null,
+                JsonNode.class);
+
+        JsonNode users = response.getBody().get("_embedded").get("userDTOList");
+        assertEquals(2, users.size());
+        assertEquals(2, users.get(1).get("id").asInt());
+        assertTrue(response.getBody().get("_links").get("next").get("href").asText()
+                .contains("/api/users/findAll/page?afterId=2"));
+    }
+
+    @Test
+    public void findAllUsers_whenLinksDisabled_returnsUsersWithoutLinks() {
+        userService.createUser(new UserDTO(1, "One", "links_1@test.tt", 1, timeNow()));
+        userService.createUser(new UserDTO(2, "Two", "links_2@test.tt", 2, timeNow()));
+
+        final ResponseEntity<JsonNode> withLinks = restTemplate.exchange(
+                String.format("http://localhost:%d/api/users/findAll", port), HttpMethod.GET, null,
+                JsonNode.class);
+        final ResponseEntity<JsonNode> withoutLinks = restTemplate.exchange(
+                String.format("http://localhost:%d/api/users/findAll?links=false", port), HttpMethod.GET, null,
+                JsonNode.class);
+
+        JsonNode linked = withLinks.getBody().get("_embedded").get("userDTOList");
+        JsonNode plain = withoutLinks.getBody().get("_embedded").get("userDTOList");
+        assertEquals(String.format("http://localhost:%d/api/users/read/id/1", port),
+                linked.get(0).get("_links").get("self").get("href").asText());
+        assertEquals(2, plain.size());
+        assertEquals(1, plain.get(0).get("id").asInt());
+        assertFalse(plain.get(0).has("_links"));
+    }
+
+    @Test
+    public void findUsersPage_whenMoreUsersThanSize_returnsPageWithNextLink() {
+        userService.createUser(new UserDTO(1, "One", "page_1@test.tt", 1, timeNow()));
+        userService.createUser(new UserDTO(2, "Two", "page_2@test.tt", 2, timeNow()));
+        userService.createUser(new UserDTO(3, "Three", "page_3@test.tt", 3, timeNow()));
+
+        final ResponseEntity<JsonNode> firstPage = restTemplate.exchange(
+                String.format("http://localhost:%d/api/users/findAll/page?size=2", port), HttpMethod.GET, null,
+                JsonNode.class);
+        JsonNode firstUsers = firstPage.getBody().get("_embedded").get("userDTOList");
+        assertEquals(HttpStatus.OK, firstPage.getStatusCode());
+        assertEquals(2, firstUsers.size());
+        assertEquals(1, firstUsers.get(0).get("id").asInt());
+        assertEquals(2, firstUsers.get(1).get("id").asInt());
+        assertTrue(firstPage.getBody().get("_links").has("next"));
+
+        final ResponseEntity<JsonNode> secondPage = restTemplate.exchange(
+                String.format("http://localhost:%d/api/users/findAll/page?afterId=2&size=2", port), HttpMethod.GET, null,
+                JsonNode.class);
+        JsonNode secondUsers = secondPage.getBody().get("_embedded").get("userDTOList");
+        assertEquals(1, secondUsers.size());
+        assertEquals(3, secondUsers.get(0).get("id").asInt());
+        assertFalse(secondPage.getBody().get("_links").has("next"));
+    }
+
+    @Test
+    public void findUsersPage_whenSizeTooLarge_returnsBadRequest() {
+        Assert.assertThrows(HttpClientErrorException.BadRequest.class, () -> restTemplate.getForEntity(
+                String.format("http://localhost:%d/api/users/findAll/page?size=%d", port, 100_000),
+                JsonNode.class));
+    }
+
+    @Test
+    public void searchUsers_whenFilteredAndSorted_returnsPagesByCursor() {
+        userService.createUser(new UserDTO(1, "Anna", "search_1@test.tt", 30, timeNow()));
+        userService.createUser(new UserDTO(2, "Anton", "search_2@test.tt", 40, timeNow()));
+        userService.createUser(new UserDTO(3, "Andrey", "search_3@test.tt", 40, timeNow()));
+        userService.createUser(new UserDTO(4, "Boris", "search_4@test.tt", 50, timeNow()));
+        userService.createUser(new UserDTO(5, "Anastasia", "search_5@test.tt", 10, timeNow()));
+
+        final ResponseEntity<JsonNode> firstPage = restTemplate.exchange(
+                String.format("http://localhost:%d/api/users/search?name=An&minAge=20&sort=AGE&direction=DESC&size=2",
+                        port), HttpMethod.GET, null, JsonNode.class);
+        JsonNode firstUsers = firstPage.getBody().get("_embedded").get("userDTOList");
+        assertEquals(HttpStatus.OK, firstPage.getStatusCode());
+        assertEquals(3, firstUsers.get(0).get("id").asInt());
+        assertEquals(2, firstUsers.get(1).get("id").asInt());
+
+        String next = firstPage.getBody().get("_links").get("next").get("href").asText();
+        final ResponseEntity<JsonNode> secondPage = restTemplate.exchange(next, HttpMethod.GET, null, JsonNode.class);
+        JsonNode secondUsers = secondPage.getBody().get("_embedded").get("userDTOList");
+        assertEquals(1, secondUsers.size());
+        assertEquals(1, secondUsers.get(0).get("id").asInt());
+        assertFalse(secondPage.getBody().get("_links").has("next"));
+    }
+
+    @Test
+    public void searchUsers_whenCursorFromOtherSort_returnsBadRequest() {
+        String cursor = UserCursor.of(UserSort.NAME, Sort.Direction.ASC,
+                new UserDTO(1, "Anna", "search_1@test.tt", 30, timeNow())).encode();
+        Assert.assertThrows(HttpClientErrorException.BadRequest.class, () -> restTemplate.getForEntity(
+                String.format("http://localhost:%d/api/users/search?sort=AGE&cursor=%s", port, cursor),
+                JsonNode.class));
+    }
+
+    @Test
+    public void streamAllUsers_whenUserExists_returnsNdjsonLines() throws JsonProcessingException {
+        UserDTO userOne = new UserDTO(1, "One", "stream_1@test.tt", 1, timeNow());
+        userService.createUser(userOne);
+        UserDTO userTwo = new UserDTO(2, "Two", "stream_2@test.tt", 2, timeNow());
+        userService.createUser(userTwo);
+
+        final ResponseEntity<String> response = restTemplate.getForEntity(
+                String.format("http://localhost:%d/api/users/findAll/stream", port), String.class);
+
+        ObjectMapper mapper = new ObjectMapper().findAndRegisterModules();
+        String[] lines = response.getBody().split("\n");
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(2, lines.length);
+        assertEquals(userOne, mapper.readValue(lines[0], UserDTO.class));
+        assertEquals(userTwo, mapper.readValue(lines[1], UserDTO.class));
+    }
+
+    @Test
+    public void createUsers_whenSomeExist_returnsResultPerItem() {
+        userService.createUser(new UserDTO(1, "One", "batch_1@test.tt", 1, timeNow()));
+        List<UserDTO> users = List.of(
+                new UserDTO(1, "One", "batch_1@test.tt", 1, timeNow()),
+                new UserDTO(2, "Two", "batch_2@test.tt", 2, timeNow()),
+                new UserDTO(2, "Two", "batch_2@test.tt", 2, timeNow()),
+                new UserDTO(3, "Three", "batch_3@test.tt", 3, timeNow()));
+
+        final ResponseEntity<JsonNode> response = restTemplate.exchange(
+                String.format("http://localhost:%d/api/users/batch/create", port),
+                HttpMethod.PUT,
+                new HttpEntity<>(users),
+                JsonNode.class);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(List.of("ALREADY_EXISTS", "CREATED", "DUPLICATE", "CREATED"), statuses(response.getBody()));
+        assertEquals(3, allUsers().size());
+    }
+
+    @Test
+    public void updateUsers_whenSomeNotExist_returnsResultPerItem() {
+        userService.createUser(new UserDTO(1, "One", "batch_1@test.tt", 1, timeNow()));
+        UserDTO updated = new UserDTO(1, "Updated", "batch_updated@test.tt", 10, timeNow());
+        List<UserDTO> users = List.of(updated, new UserDTO(2, "Two", "batch_2@test.tt", 2, timeNow()));
+
+        final ResponseEntity<JsonNode> response = restTemplate.exchange(
+                String.format("http://localhost:%d/api/users/batch/update", port),
+                HttpMethod.PUT,
+                new HttpEntity<>(users),
+                JsonNode.class);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(List.of("UPDATED", "NOT_FOUND"), statuses(response.getBody()));
+        assertEquals(updated, userService.getUserById(1).get());
+    }
+
+    @Test
+    public void deleteUsers_whenSomeNotExist_returnsResultPerItem() {
+        userService.createUser(new UserDTO(1, "One", "batch_1@test.tt", 1, timeNow()));
+        userService.createUser(new UserDTO(2, "Two", "batch_2@test.tt", 2, timeNow()));
+
+        final ResponseEntity<JsonNode> response = restTemplate.exchange(
+                String.format("http://localhost:%d/api/users/batch/delete", port),
+                HttpMethod.PUT,
+                new HttpEntity<>(List.of(1, 3, 2)),
+                JsonNode.class);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(List.of("DELETED", "NOT_FOUND", "DELETED"), statuses(response.getBody()));
+        assertTrue(allUsers().isEmpty());
+    }
+
+    private List<String> statuses(JsonNode results) {
+        List<String> statuses = new ArrayList<>();
+        results.forEach(result -> statuses.add(result.get("status").asText()));
+        return statuses;
+    }
+
+    private List<UserDTO> allUsers()
+    {
+        return userService.findUsersAfter(-1, 1000);
+    }
+
     private LocalDateTime timeNow()
     {
         return LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
@@ -0,0 +1,45 @@
+package ru.aston.userservice.controller;
+
+
+import org.junit.jupiter.api.Test;
+import ru.aston.userservice.model.UserDTO;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UserETagsTest {
+    private static final LocalDateTime CREATED_AT = LocalDateTime.of(2025, 1, 1, 12, 0);
+
+    @Test
+    void of_whenVersionOrDataChanges_changesETag() {
+        UserDTO user = new UserDTO(1, "One", "one@test.tt", 30, CREATED_AT, 0L);
+
+        assertEquals(UserETags.of(user), UserETags.of(new UserDTO(1, "One", "one@test.tt", 30, CREATED_AT, 0L)));
+        assertNotEquals(UserETags.of(user), UserETags.of(new UserDTO(1, "One", "one@test.tt", 30, CREATED_AT, 1L)));
+        assertNotEquals(UserETags.of(user), UserETags.of(new UserDTO(1, "Two", "one@test.tt", 30, CREATED_AT, 0L)));
+    }
+
+    @Test
+    void of_whenListChanges_changesETag() {
+        UserDTO one = new UserDTO(1, "One", "one@test.tt", 30, CREATED_AT, 0L);
+        UserDTO two = new UserDTO(2, "Two", "two@test.tt", 30, CREATED_AT, 0L);
+
+        assertEquals(UserETags.of(List.of(one, two)), UserETags.of(List.of(one, two)));
+        assertNotEquals(UserETags.of(List.of(one, two)), UserETags.of(List.of(one)));
+        assertNotEquals(UserETags.of(List.of(one, two)),
+                UserETags.of(List.of(one, new UserDTO(2, "Two", "two@test.tt", 30, CREATED_AT, 1L))));
+    }
+
+    @Test
+    void versionOf_parsesUserETag() {
+        UserDTO user = new UserDTO(1, "One", "one@test.tt", 30, CREATED_AT, 7L);
+
+        assertEquals(7L, UserETags.versionOf(UserETags.of(user)));
+        assertEquals(-1L, UserETags.versionOf("W/" + UserETags.of(user)));
+        assertNull(UserETags.versionOf(null));
+        assertNull(UserETags.versionOf("*"));
+        assertEquals(-1L, UserETags.versionOf("\"garbage\""));
+    }
+}
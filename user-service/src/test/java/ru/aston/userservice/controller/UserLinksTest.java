@@ -0,0 +1,61 @@
+package ru.aston.userservice.controller;
+
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.hateoas.Link;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
+
+public class UserLinksTest {
+    private final UserLinks userLinks = new UserLinks();
+
+    @BeforeEach
+    void setUp() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/users/findAll");
+        request.setServerName("users.test");
+        request.setServerPort(8181);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void of_whenInRequest_matchesLinksBuiltByMethodOn() {
+        Link[] links = userLinks.forCurrentRequest().of(42);
+
+        UserController controller = methodOn(UserController.class);
+        Link[] expected = {
+                linkTo(controller.getUserById(42, null)).withSelfRel(),
+                linkTo(controller.createUser(null, null)).withRel("create"),
+                linkTo(controller.updateUser(42, null, null)).withRel("update"),
+                linkTo(controller.deleteUser(42)).withRel("delete"),
+                linkTo(controller.findAllUsers(null, null, null)).withRel("all-users").expand()
+        };
+        assertEquals(expected.length, links.length);
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i].getRel(), links[i].getRel());
+            assertEquals(expected[i].getHref(), links[i].getHref());
+        }
+        assertEquals("http://users.test:8181/api/users/read/id/42", links[0].getHref());
+    }
+
+    @Test
+    void of_whenNoRequest_returnsRelativeLinks() {
+        RequestContextHolder.resetRequestAttributes();
+
+        Link[] links = userLinks.forCurrentRequest().of(7);
+
+        assertEquals("/api/users/read/id/7", links[0].getHref());
+        assertEquals("/api/users/findAll", links[4].getHref());
+    }
+}
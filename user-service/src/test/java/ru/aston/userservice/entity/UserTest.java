@@ -291,6 +291,15 @@ public class UserTest {
     }
 
 
+    @Test
+    void email_isStoredInLowerCase() {
+        User userOne = User.builder().email(" Test@Example.COM ").build();
+        User userTwo = new User();
+        userTwo.setEmail("TEST@example.com");
+        assertEquals("test@example.com", userOne.getEmail());
+        assertEquals("test@example.com", userTwo.getEmail());
+    }
+
     @Test
     void equals_whenBothEmpty() {
         User userOne = new User();
@@ -0,0 +1,83 @@
+package ru.aston.userservice.kafka;
+
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import ru.aston.userservice.model.UserDTO;
+import ru.aston.common.kafka.Command;
+import ru.aston.common.kafka.UserEvent;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static ru.aston.userservice.config.CacheConfig.USERS_CACHE;
+
+public class CacheInvalidationConsumerTest {
+    private Cache cache;
+    private CacheInvalidationConsumer consumer;
+
+    @BeforeEach
+    void setUp() {
+        ConcurrentMapCacheManager cacheManager = new ConcurrentMapCacheManager(USERS_CACHE);
+        cache = cacheManager.getCache(USERS_CACHE);
+        consumer = new CacheInvalidationConsumer(cacheManager);
+        cache.put(1, user(1));
+        cache.put(2, user(2));
+        cache.put(3, user(3));
+    }
+
+    @Test
+    void consume_whenIdChanged_evictsCurrentAndPreviousId() {
+        consumer.consume(event(Command.UPDATE, 1, 2));
+
+        assertNull(cache.get(1));
+        assertNull(cache.get(2));
+        assertNotNull(cache.get(3));
+    }
+
+    @Test
+    void consume_whenNoPreviousId_evictsOnlyCurrentId() {
+        consumer.consume(event(Command.DELETE, 1, null));
+
+        assertNull(cache.get(1));
+        assertNotNull(cache.get(2));
+        assertNotNull(cache.get(3));
+    }
+
+    @Test
+    void consume_whenCachedVersionNotOlder_keepsEntry() {
+        cache.put(1, user(1, 3L));
+
+        consumer.consume(event(Command.UPDATE, 1, null, 3L));
+
+        assertNotNull(cache.get(1));
+    }
+
+    @Test
+    void consume_whenCachedVersionOlder_evictsEntry() {
+        cache.put(1, user(1, 2L));
+
+        consumer.consume(event(Command.UPDATE, 1, null, 3L));
+
+        assertNull(cache.get(1));
+    }
+
+    private UserEvent event(Command command, Integer id, Integer previousId) {
+        return event(command, id, previousId, 1L);
+    }
+
+    private UserEvent event(Command command, Integer id, Integer previousId, long version) {
+        return new UserEvent(command, id, previousId, "test@example.com", "Test", version, Instant.now());
+    }
+
+    private UserDTO user(int id, Long version) {
+        return new UserDTO(id, "Test", "test" + id + "@example.com", 30, LocalDateTime.now(), version);
+    }
+
+    private UserDTO user(int id) {
+        return new UserDTO(id, "Test", "test" + id + "@example.com", 30, LocalDateTime.now());
+    }
+}
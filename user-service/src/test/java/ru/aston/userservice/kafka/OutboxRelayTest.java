@@ -0,0 +1,141 @@
+package ru.aston.userservice.kafka;
+
+
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.Pageable;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.aston.userservice.dao.OutboxDao;
+import ru.aston.userservice.entity.OutboxEvent;
+import ru.aston.common.kafka.Command;
+import ru.aston.common.kafka.UserEvent;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+public class OutboxRelayTest {
+    private OutboxDao outboxDao;
+    private Producer producer;
+    private OutboxRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        outboxDao = mock(OutboxDao.class);
+        producer = mock(Producer.class);
+        relay = new OutboxRelay(outboxDao, producer, ObservationRegistry.NOOP, mock(PlatformTransactionManager.class),
+                100, Duration.ofMinutes(5));
+        when(outboxDao.tryLock(anyLong())).thenReturn(true);
+    }
+
+    @Test
+    void relay_whenLockTakenByOtherReplica_sendsNothing() {
+        when(outboxDao.tryLock(anyLong())).thenReturn(false);
+
+        relay.relay();
+
+        verify(outboxDao, never()).findOldest(any(Pageable.class));
+        verifyZeroInteractions(producer);
+    }
+
+    @Test
+    void relay_whenAllSent_deletesAllEvents() {
+        when(outboxDao.findOldest(any(Pageable.class))).thenReturn(List.of(event(1L, 10), event(2L, 20)));
+        when(producer.sendUserEvent(any(UserEvent.class)))
+                .thenReturn(sendResult());
+
+        relay.relay();
+
+        ArgumentCaptor<UserEvent> sent = ArgumentCaptor.forClass(UserEvent.class);
+        verify(producer, times(2)).sendUserEvent(sent.capture());
+        assertEquals(List.of(10, 20), sent.getAllValues().stream().map(UserEvent::id).toList());
+        assertEquals(Command.CREATE, sent.getValue().command());
+        assertEquals("user20@test.tt", sent.getValue().email());
+        assertEquals("User20", sent.getValue().name());
+        verify(producer).flush();
+        verify(outboxDao).claim(List.of(1L, 2L), 300L);
+        verify(outboxDao).deleteAllByIdInBatch(List.of(1L, 2L));
+        verify(outboxDao, never()).release(anyCollection());
+    }
+
+    @Test
+    void relay_whenEventsClaimedByOtherPass_sendsNothing() {
+        when(outboxDao.hasActiveClaim()).thenReturn(true);
+
+        relay.relay();
+
+        verify(outboxDao, never()).findOldest(any(Pageable.class));
+        verifyZeroInteractions(producer);
+    }
+
+    @Test
+    void relay_whenSendFails_keepsFailedEventAndDeletesOthers() {
+        when(outboxDao.findOldest(any(Pageable.class))).thenReturn(List.of(event(1L, 10), event(2L, 20), event(3L, 30)));
+        when(producer.sendUserEvent(any(UserEvent.class))).thenAnswer(invocation ->
+                invocation.<UserEvent>getArgument(0).id() == 20
+                        ? CompletableFuture.failedFuture(new IllegalStateException("broker unavailable"))
+                        : sendResult());
+
+        relay.relay();
+
+        verify(outboxDao).deleteAllByIdInBatch(List.of(1L, 3L));
+        verify(outboxDao).release(List.of(2L));
+    }
+
+    @Test
+    void relay_sendsEventsOfOneUserOneAfterAnother() {
+        when(outboxDao.findOldest(any(Pageable.class))).thenReturn(List.of(event(1L, 10), event(2L, 20), event(3L, 10)));
+        CompletableFuture<SendResult<String, UserEvent>> first = new CompletableFuture<>();
+        when(producer.sendUserEvent(any(UserEvent.class)))
+                .thenReturn(first)
+                .thenReturn(sendResult());
+        doAnswer(invocation -> {
+            verify(producer, times(2)).sendUserEvent(any(UserEvent.class));
+            first.complete(new SendResult<>(null, null));
+            return null;
+        }).doNothing().when(producer).flush();
+
+        relay.relay();
+
+        verify(producer, times(3)).sendUserEvent(any(UserEvent.class));
+        verify(producer, times(2)).flush();
+        verify(outboxDao).deleteAllByIdInBatch(List.of(1L, 2L, 3L));
+    }
+
+    @Test
+    void relay_whenSendFails_doesNotSendLaterEventsOfSameUser() {
+        when(outboxDao.findOldest(any(Pageable.class))).thenReturn(List.of(event(1L, 10), event(2L, 20), event(3L, 10)));
+        when(producer.sendUserEvent(any(UserEvent.class))).thenAnswer(invocation ->
+                invocation.<UserEvent>getArgument(0).id() == 10
+                        ? CompletableFuture.failedFuture(new IllegalStateException("broker unavailable"))
+                        : sendResult());
+
+        relay.relay();
+
+        verify(producer, times(2)).sendUserEvent(any(UserEvent.class));
+        verify(outboxDao).deleteAllByIdInBatch(List.of(2L));
+        verify(outboxDao).release(List.of(1L, 3L));
+    }
+
+    private static CompletableFuture<SendResult<String, UserEvent>> sendResult() {
+        return CompletableFuture.completedFuture(new SendResult<>(null, null));
+    }
+
+    private OutboxEvent event(Long id, Integer userId) {
+        OutboxEvent event = new OutboxEvent(Command.CREATE.name(), userId, null, "user" + userId + "@test.tt",
+                "User" + userId, 1L, LocalDateTime.now(), null);
+        ReflectionTestUtils.setField(event, "id", id);
+        return event;
+    }
+}
@@ -0,0 +1,126 @@
+package ru.aston.userservice.kafka;
+
+
+import io.micrometer.observation.ObservationHandler;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import io.micrometer.tracing.handler.DefaultTracingObservationHandler;
+import io.micrometer.tracing.handler.PropagatingReceiverTracingObservationHandler;
+import io.micrometer.tracing.handler.PropagatingSenderTracingObservationHandler;
+import io.micrometer.tracing.otel.bridge.OtelCurrentTraceContext;
+import io.micrometer.tracing.otel.bridge.OtelPropagator;
+import io.micrometer.tracing.otel.bridge.OtelTracer;
+import io.micrometer.tracing.propagation.Propagator;
+import io.opentelemetry.api.trace.propagation.W3CTraceContextPropagator;
+import io.opentelemetry.context.propagation.ContextPropagators;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.Pageable;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.aston.userservice.dao.OutboxDao;
+import ru.aston.userservice.entity.OutboxEvent;
+import ru.aston.common.kafka.Command;
+import ru.aston.common.kafka.UserEvent;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+//Трасса запроса через outbox: спаны собираются InMemorySpanExporter вместо внешнего коллектора.
+public class OutboxTracingTest {
+    private final InMemorySpanExporter exporter = InMemorySpanExporter.create();
+    private Tracer tracer;
+    private ObservationRegistry observationRegistry;
+    private OutboxDao outboxDao;
+    private Producer producer;
+
+    @BeforeEach
+    void setUp() {
+        SdkTracerProvider tracerProvider = SdkTracerProvider.builder()
+                .addSpanProcessor(SimpleSpanProcessor.create(exporter))
+                .build();
+        io.opentelemetry.api.trace.Tracer otelTracer = tracerProvider.get("test");
+        tracer = new OtelTracer(otelTracer, new OtelCurrentTraceContext(), event -> {
+        });
+        Propagator propagator = new OtelPropagator(
+                ContextPropagators.create(W3CTraceContextPropagator.getInstance()), otelTracer);
+        observationRegistry = ObservationRegistry.create();
+        observationRegistry.observationConfig().observationHandler(
+                new ObservationHandler.FirstMatchingCompositeObservationHandler(
+                        new PropagatingSenderTracingObservationHandler<>(tracer, propagator),
+                        new PropagatingReceiverTracingObservationHandler<>(tracer, propagator),
+                        new DefaultTracingObservationHandler(tracer)));
+
+        outboxDao = mock(OutboxDao.class);
+        producer = mock(Producer.class);
+        when(outboxDao.tryLock(anyLong())).thenReturn(true);
+    }
+
+    @Test
+    void relay_continuesTraceOfRequestThatWroteEvent() {
+        OutboxEvent event = writeInRequestSpan();
+        when(outboxDao.findOldest(any(Pageable.class))).thenReturn(List.of(event));
+        List<String> sendTraceIds = new ArrayList<>();
+        when(producer.sendUserEvent(any(UserEvent.class))).thenAnswer(invocation -> {
+            sendTraceIds.add(tracer.currentSpan().context().traceId());
+            return CompletableFuture.completedFuture(mock(SendResult.class));
+        });
+
+        new OutboxRelay(outboxDao, producer, observationRegistry, mock(PlatformTransactionManager.class), 100,
+                Duration.ofMinutes(5)).relay();
+
+        SpanData request = span("request");
+        SpanData write = span("users.outbox.write");
+        SpanData relay = span("users.outbox.relay");
+        assertEquals(List.of(request.getTraceId()), sendTraceIds);
+        assertEquals(request.getSpanId(), write.getParentSpanId());
+        assertEquals(write.getSpanId(), relay.getParentSpanId());
+        assertEquals(request.getTraceId(), relay.getTraceId());
+    }
+
+    @Test
+    void add_withoutTracing_storesNoTraceParent() {
+        new UserEventOutbox(outboxDao, ObservationRegistry.NOOP)
+                .add(Command.DELETE, "user10@test.tt", "User10", 1L, 10, null);
+
+        ArgumentCaptor<OutboxEvent> saved = ArgumentCaptor.forClass(OutboxEvent.class);
+        verify(outboxDao).save(saved.capture());
+        assertNull(saved.getValue().getTraceParent());
+    }
+
+    private OutboxEvent writeInRequestSpan() {
+        Span request = tracer.nextSpan().name("request").start();
+        try (Tracer.SpanInScope ignored = tracer.withSpan(request)) {
+            new UserEventOutbox(outboxDao, observationRegistry)
+                    .add(Command.CREATE, "user10@test.tt", "User10", 1L, 10, null);
+        } finally {
+            request.end();
+        }
+        ArgumentCaptor<OutboxEvent> saved = ArgumentCaptor.forClass(OutboxEvent.class);
+        verify(outboxDao).save(saved.capture());
+        ReflectionTestUtils.setField(saved.getValue(), "id", 1L);
+        return saved.getValue();
+    }
+
+    private SpanData span(String name) {
+        return exporter.getFinishedSpanItems().stream()
+                .filter(span -> span.getName().equals(name))
+                .findFirst()
+                .orElseThrow();
+    }
+}
@@ -0,0 +1,82 @@
+package ru.aston.userservice.kafka;
+
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import ru.aston.common.kafka.Command;
+import ru.aston.common.kafka.UserEvent;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static ru.aston.userservice.kafka.Producer.SEND_FAILURES;
+import static ru.aston.userservice.kafka.Producer.SEND_PENDING;
+import static ru.aston.userservice.kafka.Producer.SEND_TIMER;
+import static ru.aston.userservice.kafka.Producer.USERS_TOPIC;
+
+public class ProducerTest {
+    private KafkaTemplate<String, UserEvent> kafkaTemplate;
+    private SimpleMeterRegistry meterRegistry;
+    private Producer producer;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        kafkaTemplate = mock(KafkaTemplate.class);
+        meterRegistry = new SimpleMeterRegistry();
+        producer = new Producer(kafkaTemplate, meterRegistry, 1, Duration.ofMillis(50));
+    }
+
+    @Test
+    void sendUserEvent_whenAcknowledged_recordsLatencyAndReleasesBuffer() {
+        when(kafkaTemplate.send(anyString(), anyString(), any(UserEvent.class)))
+                .thenReturn(CompletableFuture.completedFuture(new SendResult<>(null, null)));
+
+        producer.sendUserEvent(event(7)).join();
+
+        verify(kafkaTemplate).send(eq(USERS_TOPIC), eq("7"), any(UserEvent.class));
+        assertEquals(1, meterRegistry.get(SEND_TIMER).tag("outcome", "success").timer().count());
+        assertEquals(0, meterRegistry.get(SEND_PENDING).gauge().value());
+        assertEquals(0, meterRegistry.get(SEND_FAILURES).counter().count());
+    }
+
+    @Test
+    void sendUserEvent_whenKafkaFails_countsFailure() {
+        when(kafkaTemplate.send(anyString(), anyString(), any(UserEvent.class)))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker unavailable")));
+
+        CompletableFuture<?> future = producer.sendUserEvent(event(7));
+
+        assertTrue(future.isCompletedExceptionally());
+        assertEquals(1, meterRegistry.get(SEND_TIMER).tag("outcome", "failure").timer().count());
+        assertEquals(1, meterRegistry.get(SEND_FAILURES).counter().count());
+        assertEquals(0, meterRegistry.get(SEND_PENDING).gauge().value());
+    }
+
+    @Test
+    void sendUserEvent_whenBufferFull_failsWithoutSending() {
+        when(kafkaTemplate.send(anyString(), anyString(), any(UserEvent.class)))
+                .thenReturn(new CompletableFuture<>());
+        producer.sendUserEvent(event(1));
+
+        CompletableFuture<?> future = producer.sendUserEvent(event(2));
+
+        assertTrue(future.isCompletedExceptionally());
+        verify(kafkaTemplate, times(1)).send(anyString(), anyString(), any(UserEvent.class));
+        assertEquals(1, meterRegistry.get(SEND_PENDING).gauge().value());
+        assertEquals(1, meterRegistry.get(SEND_FAILURES).counter().count());
+    }
+
+    private UserEvent event(int id) {
+        return new UserEvent(Command.CREATE, id, null, "user" + id + "@test.tt", "User", 1L, Instant.now());
+    }
+}
@@ -0,0 +1,46 @@
+package ru.aston.userservice.model;
+
+
+import jakarta.validation.ValidationException;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UserCursorTest {
+    private static final LocalDateTime CREATED_AT = LocalDateTime.of(2025, 1, 1, 12, 0);
+
+    @Test
+    void decode_whenEncodedForSameSort_returnsLastUserValues() {
+        UserDTO last = new UserDTO(7, "One", "one:two@test.tt", 30, CREATED_AT);
+
+        for (UserSort sort : UserSort.values()) {
+            UserCursor cursor = UserCursor.decode(
+                    UserCursor.of(sort, Sort.Direction.DESC, last).encode(), sort, Sort.Direction.DESC);
+            assertEquals(sort.valueOf(last), cursor.value());
+            assertEquals(7, cursor.id());
+        }
+    }
+
+    @Test
+    void decode_whenSortFieldIsEmpty_returnsNullValue() {
+        UserDTO last = new UserDTO(7, "One", "one@test.tt", null, CREATED_AT);
+
+        UserCursor cursor = UserCursor.decode(
+                UserCursor.of(UserSort.AGE, Sort.Direction.ASC, last).encode(), UserSort.AGE, Sort.Direction.ASC);
+        assertNull(cursor.value());
+        assertEquals(7, cursor.id());
+    }
+
+    @Test
+    void decode_whenSortDiffersOrCursorIsGarbage_throwsValidationException() {
+        String cursor = UserCursor.of(UserSort.NAME, Sort.Direction.ASC,
+                new UserDTO(7, "One", "one@test.tt", 30, CREATED_AT)).encode();
+
+        assertThrows(ValidationException.class, () -> UserCursor.decode(cursor, UserSort.AGE, Sort.Direction.ASC));
+        assertThrows(ValidationException.class, () -> UserCursor.decode(cursor, UserSort.NAME, Sort.Direction.DESC));
+        assertThrows(ValidationException.class, () -> UserCursor.decode("not a cursor", UserSort.ID, Sort.Direction.ASC));
+    }
+}
@@ -0,0 +1,124 @@
+package ru.aston.userservice.service.impl;
+
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import ru.aston.userservice.controller.BaseIntegrationTest;
+import ru.aston.userservice.dao.UserDao;
+import ru.aston.userservice.entity.User;
+import ru.aston.userservice.model.UserDTO;
+import ru.aston.userservice.service.UserService;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static ru.aston.userservice.config.CacheConfig.USERS_CACHE;
+
+
+public class UserServiceImplTest extends BaseIntegrationTest {
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserDao userDao;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    private Cache cache;
+
+    @BeforeEach
+    public void cleanUp() {
+        userDao.deleteAll();
+        cache = cacheManager.getCache(USERS_CACHE);
+        cache.clear();
+    }
+
+    @Test
+    public void getUserById_whenUserExists_putsUserIntoCache() {
+        UserDTO userDTO = new UserDTO(105, "testCache", "cache@test.tt", 105, timeNow());
+        userService.createUser(userDTO);
+
+        userService.getUserById(105);
+
+        assertEquals(userDTO, cache.get(105, UserDTO.class));
+    }
+
+    @Test
+    public void getUserById_whenUserCached_doesNotReadDatabase() {
+        UserDTO userDTO = new UserDTO(105, "testCache", "cache@test.tt", 105, timeNow());
+        userService.createUser(userDTO);
+        userService.getUserById(105);
+
+        userDao.deleteAll();
+
+        assertEquals(Optional.of(userDTO), userService.getUserById(105));
+    }
+
+    @Test
+    public void getUserById_whenUserNotExists_doesNotCacheMiss() {
+        userService.getUserById(1);
+
+        assertNull(cache.get(1));
+    }
+
+    @Test
+    public void updateUser_evictsOldAndNewId() {
+        userService.createUser(new UserDTO(105, "testCache", "cache@test.tt", 105, timeNow()));
+        userService.getUserById(105);
+        cache.put(100, new UserDTO(100, "stale", "stale@test.tt", 1, timeNow()));
+
+        userService.updateUser(new UserDTO(100, "testUpdate", "update@test.tt", 100, timeNow()), 105, null);
+
+        assertNull(cache.get(105));
+        assertNull(cache.get(100));
+    }
+
+    @Test
+    public void deleteUserById_evictsUser() {
+        userService.createUser(new UserDTO(105, "testCache", "cache@test.tt", 105, timeNow()));
+        userService.getUserById(105);
+
+        userService.deleteUserById(105);
+
+        assertNull(cache.get(105));
+        assertTrue(userService.getUserById(105).isEmpty());
+    }
+
+    @Test
+    public void deleteReturning_returnsDeletedRowOnce() {
+        userService.createUser(new UserDTO(105, "testDelete", "delete@test.tt", 105, timeNow()));
+
+        Optional<User> deleted = userDao.deleteReturning(105);
+
+        assertTrue(deleted.isPresent());
+        assertEquals("delete@test.tt", deleted.get().getEmail());
+        assertEquals("testDelete", deleted.get().getName());
+        assertTrue(userDao.deleteReturning(105).isEmpty());
+        assertFalse(userDao.existsById(105));
+    }
+
+    @Test
+    public void updateReturning_returnsUpdatedRowWithNextVersion() {
+        UserDTO created = userService.createUser(new UserDTO(105, "testUpdate", "update@test.tt", 105, timeNow())).get();
+
+        Optional<User> updated = userDao.updateReturning(100, "testNew", 100, "new@test.tt", timeNow(), 105,
+                created.version());
+
+        assertTrue(updated.isPresent());
+        assertEquals(100, updated.get().getId());
+        assertEquals("new@test.tt", updated.get().getEmail());
+        assertEquals(created.version() + 1, updated.get().getVersion());
+        assertTrue(userDao.updateReturning(101, "testNew", 100, "new@test.tt", timeNow(), 100,
+                created.version()).isEmpty());
+    }
+
+    private LocalDateTime timeNow() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+    }
+}